@@ -0,0 +1,70 @@
+package com.mobycode.ticketproblem.benchmark;
+
+import com.mobycode.ticketproblem.grid.GridDataNames;
+import com.mobycode.ticketproblem.model.Customer;
+import com.mobycode.ticketproblem.model.Ticket;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.IgniteDataStreamer;
+import org.apache.ignite.Ignition;
+import org.apache.ignite.configuration.IgniteConfiguration;
+import org.apache.ignite.spi.discovery.tcp.TcpDiscoverySpi;
+import org.apache.ignite.spi.discovery.tcp.ipfinder.vm.TcpDiscoveryVmIpFinder;
+
+import java.util.Collections;
+import java.util.stream.LongStream;
+
+/*
+    Embedded single node grid for benchmarks - discovery is kept on loopback so a benchmark run never joins
+    (or gets joined by) another cluster on the network
+ */
+final class BenchmarkGrid {
+
+    static final int NUMBER_OF_TICKETS = 1000;
+    static final int NUMBER_OF_CUSTOMERS = 60000;
+
+    private BenchmarkGrid() {
+    }
+
+    static Ignite start(String gridName) {
+        return Ignition.start(configuration(gridName));
+    }
+
+    /*
+        Join a grid already running on this machine (e.g. the application) as a client - it holds no data
+     */
+    static Ignite startClient(String gridName) {
+        IgniteConfiguration cfg = configuration(gridName);
+        cfg.setClientMode(true);
+        return Ignition.start(cfg);
+    }
+
+    private static IgniteConfiguration configuration(String gridName) {
+        TcpDiscoveryVmIpFinder ipFinder = new TcpDiscoveryVmIpFinder();
+        ipFinder.setAddresses(Collections.singletonList("127.0.0.1:47500..47509"));
+        TcpDiscoverySpi discoverySpi = new TcpDiscoverySpi();
+        discoverySpi.setIpFinder(ipFinder);
+        IgniteConfiguration cfg = new IgniteConfiguration();
+        cfg.setGridName(gridName);
+        cfg.setDiscoverySpi(discoverySpi);
+        return cfg;
+    }
+
+    static IgniteCache<Long, Ticket> fillTickets(Ignite ignite) {
+        IgniteCache<Long, Ticket> ticketMap = ignite.getOrCreateCache(GridDataNames.MAP_TICKET.getName());
+        ticketMap.clear();
+        try (IgniteDataStreamer<Long, Ticket> streamer = ignite.dataStreamer(GridDataNames.MAP_TICKET.getName())) {
+            LongStream.rangeClosed(1, NUMBER_OF_TICKETS).forEach(key -> streamer.addData(key, new Ticket(key)));
+        }
+        return ticketMap;
+    }
+
+    static IgniteCache<Long, Customer> fillCustomers(Ignite ignite) {
+        IgniteCache<Long, Customer> customerMap = ignite.getOrCreateCache(GridDataNames.MAP_CUSTOMER.getName());
+        customerMap.clear();
+        try (IgniteDataStreamer<Long, Customer> streamer = ignite.dataStreamer(GridDataNames.MAP_CUSTOMER.getName())) {
+            LongStream.rangeClosed(1, NUMBER_OF_CUSTOMERS).forEach(key -> streamer.addData(key, new Customer(key)));
+        }
+        return customerMap;
+    }
+}
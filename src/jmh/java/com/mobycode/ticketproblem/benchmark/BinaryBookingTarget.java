@@ -0,0 +1,39 @@
+package com.mobycode.ticketproblem.benchmark;
+
+import com.mobycode.ticketproblem.binary.BinaryBookingClient;
+import com.mobycode.ticketproblem.model.BookTicketResult;
+import com.mobycode.ticketproblem.model.BookingRequest;
+import com.mobycode.ticketproblem.model.BookingResult;
+
+import java.util.concurrent.CompletableFuture;
+
+/*
+    BinaryBookingClient over a few connections, taken in turn - each client has its own I/O thread
+ */
+class BinaryBookingTarget implements BookingTarget {
+
+    private final BinaryBookingClient[] clients;
+    private int next;
+
+    BinaryBookingTarget(String host, int port, int connections) throws InterruptedException {
+        clients = new BinaryBookingClient[connections];
+        for (int i = 0; i < connections; i++) {
+            clients[i] = new BinaryBookingClient(host, port);
+        }
+    }
+
+    //only ever called from the generator's sending thread
+    @Override
+    public CompletableFuture<BookTicketResult> book(long ticketId, long customerId) {
+        BinaryBookingClient client = clients[next];
+        next = (next + 1) % clients.length;
+        return client.book(new BookingRequest(ticketId, customerId)).thenApply(BookingResult::getBookTicketResult);
+    }
+
+    @Override
+    public void close() {
+        for (BinaryBookingClient client : clients) {
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.mobycode.ticketproblem.benchmark;
+
+import com.mobycode.ticketproblem.grid.GridDataNames;
+import com.mobycode.ticketproblem.grid.entryprocessor.BookTicket;
+import com.mobycode.ticketproblem.model.BookingRequest;
+import com.mobycode.ticketproblem.model.BookingResult;
+import org.apache.ignite.Ignite;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+    BookTicket.book on an embedded grid - contention ranges from every thread booking one hot ticket to bookings
+    spread uniformly over all tickets.  Sample time mode reports latency percentiles next to throughput
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Threads(6)
+@Fork(1)
+public class BookTicketBenchmark {
+
+    private static final long HOT_TICKET = 500L;
+
+    public enum Contention {
+        HOT, UNIFORM
+    }
+
+    @Param({"HOT", "UNIFORM"})
+    private Contention contention;
+
+    private Ignite ignite;
+    private BookTicket bookTicket;
+
+    @Setup(Level.Trial)
+    public void startGrid() {
+        ignite = BenchmarkGrid.start("bookTicketBenchmark");
+        bookTicket = new BookTicket(ignite.getOrCreateCache(GridDataNames.MAP_TICKET.getName()));
+    }
+
+    //every iteration starts with all tickets on sale so the first bookings of each iteration win
+    @Setup(Level.Iteration)
+    public void fillGrid() {
+        BenchmarkGrid.fillTickets(ignite);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopGrid() {
+        ignite.close();
+    }
+
+    @Benchmark
+    public BookingResult book() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long ticketId = contention == Contention.HOT ? HOT_TICKET : random.nextLong(1, BenchmarkGrid.NUMBER_OF_TICKETS + 1);
+        return bookTicket.book(new BookingRequest(ticketId, random.nextLong(1, BenchmarkGrid.NUMBER_OF_CUSTOMERS + 1)));
+    }
+}
@@ -0,0 +1,13 @@
+package com.mobycode.ticketproblem.benchmark;
+
+import com.mobycode.ticketproblem.model.BookTicketResult;
+
+import java.util.concurrent.CompletableFuture;
+
+/*
+    Where the load generator sends bookings - book() must not block, the generator's pacing depends on it
+ */
+interface BookingTarget extends AutoCloseable {
+
+    CompletableFuture<BookTicketResult> book(long ticketId, long customerId);
+}
@@ -0,0 +1,32 @@
+package com.mobycode.ticketproblem.benchmark;
+
+import com.mobycode.ticketproblem.grid.GridDataNames;
+import com.mobycode.ticketproblem.grid.entryprocessor.BookTicket;
+import com.mobycode.ticketproblem.model.BookTicketResult;
+import com.mobycode.ticketproblem.model.BookingRequest;
+import com.mobycode.ticketproblem.model.BookingResult;
+import org.apache.ignite.Ignite;
+
+import java.util.concurrent.CompletableFuture;
+
+/*
+    BookTicket.bookAsync from a client node joined to the running grid - the entry processor is sent to the
+    ticket's primary node, as it would be from a gateway
+ */
+class GridBookingTarget implements BookingTarget {
+
+    private final BookTicket bookTicket;
+
+    GridBookingTarget(Ignite ignite) {
+        bookTicket = new BookTicket(ignite.getOrCreateCache(GridDataNames.MAP_TICKET.getName()));
+    }
+
+    @Override
+    public CompletableFuture<BookTicketResult> book(long ticketId, long customerId) {
+        return bookTicket.bookAsync(new BookingRequest(ticketId, customerId)).thenApply(BookingResult::getBookTicketResult);
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,66 @@
+package com.mobycode.ticketproblem.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mobycode.ticketproblem.model.BookTicketResult;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.client.util.BufferingResponseListener;
+import org.eclipse.jetty.client.util.StringContentProvider;
+import org.eclipse.jetty.http.HttpMethod;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/*
+    PUT /ticket/book with jetty's non-blocking http client - requests beyond the open connections are queued by the
+    client rather than holding up the sender
+ */
+class HttpBookingTarget implements BookingTarget {
+
+    //booked or not, or turned away by admission control (SERVICE_BUSY / TICKET_BUSY) - all carry a BookingResult
+    private static final List<Integer> ANSWERED = Arrays.asList(200, 429, 503);
+
+    private final String url;
+    private final HttpClient httpClient = new HttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    HttpBookingTarget(String url, int connections, int maxQueued) throws Exception {
+        this.url = url;
+        httpClient.setMaxConnectionsPerDestination(connections);
+        httpClient.setMaxRequestsQueuedPerDestination(maxQueued);
+        httpClient.start();
+    }
+
+    @Override
+    public CompletableFuture<BookTicketResult> book(long ticketId, long customerId) {
+        CompletableFuture<BookTicketResult> result = new CompletableFuture<>();
+        httpClient.newRequest(url)
+                .method(HttpMethod.PUT)
+                .content(new StringContentProvider("{\"ticketId\":" + ticketId + ",\"customerId\":" + customerId + "}"), "application/json")
+                .send(new BufferingResponseListener() {
+                    @Override
+                    public void onComplete(Result response) {
+                        if (response.isFailed()) {
+                            result.completeExceptionally(response.getFailure());
+                        } else if (!ANSWERED.contains(response.getResponse().getStatus())) {
+                            result.completeExceptionally(new IOException("HTTP " + response.getResponse().getStatus()));
+                        } else {
+                            try {
+                                String bookTicketResult = objectMapper.readTree(getContentAsString()).path("bookTicketResult").asText();
+                                result.complete(BookTicketResult.valueOf(bookTicketResult));
+                            } catch (Exception e) {
+                                result.completeExceptionally(e);
+                            }
+                        }
+                    }
+                });
+        return result;
+    }
+
+    @Override
+    public void close() throws Exception {
+        httpClient.stop();
+    }
+}
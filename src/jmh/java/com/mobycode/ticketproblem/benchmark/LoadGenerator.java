@@ -0,0 +1,302 @@
+package com.mobycode.ticketproblem.benchmark;
+
+import com.mobycode.ticketproblem.model.BookTicketResult;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+import org.apache.ignite.Ignite;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/*
+    Open loop load generator - bookings are sent at a fixed arrival rate whether or not earlier ones have completed,
+    the way buyers arrive at an on sale.
+
+    A closed loop (a fixed pool of threads each waiting for its last booking, like RemoteClientTest) stops sending
+    while the service is slow, so queueing delay never shows up in its latencies (coordinated omission).  Here each
+    booking's latency is measured from when it was due to be sent, so time spent behind a backlog - in the service
+    or in the generator itself - is counted.  The uncorrected latency (from when it was actually sent) is reported
+    alongside for comparison.
+
+    Run against a running application with
+    mvn -Pjmh compile exec:exec -Djmh.main=com.mobycode.ticketproblem.benchmark.LoadGenerator -Djmh.args="--rate=20000"
+
+    Options (--name=value):
+      target       http (PUT /ticket/book), grid (BookTicket from a client node)
+                   or binary (BinaryBookingClient)                                      default http
+      url          booking url for the http target                                     default http://127.0.0.1:8080/ticket/book
+      host         host of the binary target                                           default 127.0.0.1
+      port         port of the binary target                                           default 8090
+      rate         bookings per second                                                 default 10000
+      duration     seconds to measure for                                              default 60
+      warmup       seconds to run before measuring                                     default 10
+      skew         hot, zipf or uniform                                                default zipf
+      zipf         zipf exponent                                                       default 1.0
+      tickets      ticket ids 1..n to book                                             default 1000
+      customers    customer ids 1..n to book for                                       default 60000
+      fill         clear and refill the ticket and customer maps first                 default false
+      connections  http connections, or binary connections                             default 64 http, 4 binary
+      max-queued   http requests queued for a connection before failing                default 1000000
+      interval     seconds between progress reports                                    default 1
+      log          HdrHistogram interval log of the corrected latencies                default none
+ */
+public class LoadGenerator {
+
+    //anything slower is recorded as the maximum
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+    private static final int SIGNIFICANT_DIGITS = 3;
+    //park rather than spin while the next booking is further away than this
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    //completed bookings by BookTicketResult, then failed requests
+    private static final int FAILED = BookTicketResult.values().length;
+
+    private final BookingTarget target;
+    private final LongSupplier ticketChooser;
+    private final int numberOfCustomers;
+    private final long rate;
+
+    private final Recorder corrected = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+    private final Recorder uncorrected = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+    private final LongAdder[] outcomes = new LongAdder[BookTicketResult.values().length + 1];
+    private final LongAdder sent = new LongAdder();
+
+    LoadGenerator(BookingTarget target, LongSupplier ticketChooser, int numberOfCustomers, long rate) {
+        this.target = target;
+        this.ticketChooser = ticketChooser;
+        this.numberOfCustomers = numberOfCustomers;
+        this.rate = rate;
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = new LongAdder();
+        }
+    }
+
+    private static BookingTarget target(String targetName, Map<String, String> options, Ignite ignite) throws Exception {
+        switch (targetName) {
+            case "grid":
+                return new GridBookingTarget(ignite);
+            case "binary":
+                return new BinaryBookingTarget(options.getOrDefault("host", "127.0.0.1"),
+                        Integer.parseInt(options.getOrDefault("port", "8090")),
+                        Integer.parseInt(options.getOrDefault("connections", "4")));
+            default:
+                return new HttpBookingTarget(options.getOrDefault("url", "http://127.0.0.1:8080/ticket/book"),
+                        Integer.parseInt(options.getOrDefault("connections", "64")),
+                        Integer.parseInt(options.getOrDefault("max-queued", "1000000")));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = options(args);
+        String targetName = options.getOrDefault("target", "http");
+        int numberOfTickets = Integer.parseInt(options.getOrDefault("tickets", String.valueOf(BenchmarkGrid.NUMBER_OF_TICKETS)));
+        int numberOfCustomers = Integer.parseInt(options.getOrDefault("customers", String.valueOf(BenchmarkGrid.NUMBER_OF_CUSTOMERS)));
+        TicketSkew skew = TicketSkew.valueOf(options.getOrDefault("skew", "zipf").toUpperCase());
+        double zipfExponent = Double.parseDouble(options.getOrDefault("zipf", "1.0"));
+        long rate = Long.parseLong(options.getOrDefault("rate", "10000"));
+        long warmupSeconds = Long.parseLong(options.getOrDefault("warmup", "10"));
+        long durationSeconds = Long.parseLong(options.getOrDefault("duration", "60"));
+        long intervalSeconds = Long.parseLong(options.getOrDefault("interval", "1"));
+        boolean fill = Boolean.parseBoolean(options.getOrDefault("fill", "false"));
+
+        Ignite ignite = null;
+        if (fill || targetName.equals("grid")) {
+            ignite = BenchmarkGrid.startClient("loadGenerator");
+        }
+        if (fill) {
+            BenchmarkGrid.fillTickets(ignite);
+            BenchmarkGrid.fillCustomers(ignite);
+        }
+        try (BookingTarget target = target(targetName, options, ignite)) {
+            System.out.printf("%s target, %d bookings/s, %s skew over %d tickets, %ds warmup, %ds measured%n",
+                    targetName, rate, skew, numberOfTickets, warmupSeconds, durationSeconds);
+            LoadGenerator generator = new LoadGenerator(target, skew.chooser(numberOfTickets, zipfExponent), numberOfCustomers, rate);
+            generator.run(warmupSeconds, durationSeconds, intervalSeconds, options.get("log"));
+        } finally {
+            if (ignite != null) {
+                ignite.close();
+            }
+        }
+    }
+
+    void run(long warmupSeconds, long durationSeconds, long intervalSeconds, String logFile) throws FileNotFoundException {
+        long startMillis = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        long measureFromNanos = startNanos + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long endNanos = measureFromNanos + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        HistogramLogWriter logWriter = null;
+        if (logFile != null) {
+            logWriter = new HistogramLogWriter(new File(logFile));
+            logWriter.outputLogFormatVersion();
+            logWriter.outputStartTime(startMillis);
+            logWriter.outputLegend();
+        }
+        Report report = new Report(startMillis, measureFromNanos, logWriter);
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(report::interval, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        try {
+            send(startNanos, endNanos);
+            awaitOutstanding(TimeUnit.SECONDS.toNanos(30));
+        } finally {
+            reporter.shutdownNow();
+        }
+        report.interval();
+        report.summary();
+        if (logWriter != null) {
+            logWriter.close();
+        }
+    }
+
+    /*
+        the i-th booking is due at start + i/rate - if the sender has fallen behind it sends at once, but the
+        booking's latency still counts from when it was due
+     */
+    private void send(long startNanos, long endNanos) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (long i = 0; ; i++) {
+            long dueNanos = startNanos + i * TimeUnit.SECONDS.toNanos(1) / rate;
+            if (dueNanos >= endNanos) {
+                return;
+            }
+            long now;
+            while ((now = System.nanoTime()) < dueNanos) {
+                if (dueNanos - now > SPIN_NANOS) {
+                    LockSupport.parkNanos(dueNanos - now - SPIN_NANOS);
+                }
+            }
+            long sentNanos = now;
+            sent.increment();
+            target.book(ticketChooser.getAsLong(), random.nextLong(1, numberOfCustomers + 1))
+                    .whenComplete((bookTicketResult, throwable) -> {
+                        long completedNanos = System.nanoTime();
+                        corrected.recordValue(micros(completedNanos - dueNanos));
+                        uncorrected.recordValue(micros(completedNanos - sentNanos));
+                        outcomes[throwable == null ? bookTicketResult.ordinal() : FAILED].increment();
+                    });
+        }
+    }
+
+    private void awaitOutstanding(long timeoutNanos) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (completed() < sent.sum() && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+
+    private long completed() {
+        long completed = 0;
+        for (LongAdder outcome : outcomes) {
+            completed += outcome.sum();
+        }
+        return completed;
+    }
+
+    private static long micros(long nanos) {
+        return Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_TRACKABLE_MICROS);
+    }
+
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Options are given as --name=value, not " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    /*
+        Per interval progress lines and the totals over the measured period
+     */
+    private class Report {
+
+        private final long startMillis;
+        private final long measureFromNanos;
+        private final HistogramLogWriter logWriter;
+        private final Histogram correctedTotal = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        private final Histogram uncorrectedTotal = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        private final long[] outcomesAtStart = new long[outcomes.length];
+        private Histogram correctedInterval;
+        private Histogram uncorrectedInterval;
+        private long lastCompleted;
+        private long lastNanos = System.nanoTime();
+        private boolean measuring;
+
+        Report(long startMillis, long measureFromNanos, HistogramLogWriter logWriter) {
+            this.startMillis = startMillis;
+            this.measureFromNanos = measureFromNanos;
+            this.logWriter = logWriter;
+            System.out.printf("%8s %10s %10s %10s %9s %9s %9s %9s %9s %9s%n",
+                    "seconds", "done/s", "in flight", "failed", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "p99 raw");
+        }
+
+        synchronized void interval() {
+            long now = System.nanoTime();
+            correctedInterval = corrected.getIntervalHistogram(correctedInterval);
+            uncorrectedInterval = uncorrected.getIntervalHistogram(uncorrectedInterval);
+            long completed = completed();
+            if (!measuring && now >= measureFromNanos) {
+                measuring = true;
+                for (int i = 0; i < outcomes.length; i++) {
+                    outcomesAtStart[i] = outcomes[i].sum();
+                }
+            }
+            if (measuring) {
+                correctedTotal.add(correctedInterval);
+                uncorrectedTotal.add(uncorrectedInterval);
+                if (logWriter != null) {
+                    //values are microseconds, the max column is logged in milliseconds
+                    logWriter.outputIntervalHistogram(
+                            (correctedInterval.getStartTimeStamp() - startMillis) / 1000.0,
+                            (correctedInterval.getEndTimeStamp() - startMillis) / 1000.0,
+                            correctedInterval, 1000.0);
+                }
+            }
+            System.out.printf("%8.1f %10.0f %10d %10d %9.3f %9.3f %9.3f %9.3f %9.3f %9.3f%s%n",
+                    (now - measureFromNanos) / 1e9,
+                    (completed - lastCompleted) / ((now - lastNanos) / 1e9),
+                    sent.sum() - completed,
+                    outcomes[FAILED].sum(),
+                    millis(correctedInterval.getValueAtPercentile(50)),
+                    millis(correctedInterval.getValueAtPercentile(90)),
+                    millis(correctedInterval.getValueAtPercentile(99)),
+                    millis(correctedInterval.getValueAtPercentile(99.9)),
+                    millis(correctedInterval.getMaxValue()),
+                    millis(uncorrectedInterval.getValueAtPercentile(99)),
+                    measuring ? "" : " (warmup)");
+            lastCompleted = completed;
+            lastNanos = now;
+        }
+
+        synchronized void summary() {
+            System.out.println();
+            for (BookTicketResult result : BookTicketResult.values()) {
+                System.out.printf("%-22s %d%n", result, outcomes[result.ordinal()].sum() - outcomesAtStart[result.ordinal()]);
+            }
+            System.out.printf("%-22s %d%n", "FAILED", outcomes[FAILED].sum() - outcomesAtStart[FAILED]);
+            System.out.printf("%-22s %d%n", "NOT COMPLETED", sent.sum() - completed());
+            System.out.println();
+            System.out.printf("%-10s %12s %12s%n", "percentile", "corrected ms", "raw ms");
+            for (double percentile : new double[]{50, 90, 99, 99.9, 99.99}) {
+                System.out.printf("%-10s %12.3f %12.3f%n", percentile,
+                        millis(correctedTotal.getValueAtPercentile(percentile)), millis(uncorrectedTotal.getValueAtPercentile(percentile)));
+            }
+            System.out.printf("%-10s %12.3f %12.3f%n", "max", millis(correctedTotal.getMaxValue()), millis(uncorrectedTotal.getMaxValue()));
+        }
+
+        private double millis(long micros) {
+            return micros / 1000.0;
+        }
+    }
+}
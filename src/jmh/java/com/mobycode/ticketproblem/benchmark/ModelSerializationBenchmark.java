@@ -0,0 +1,78 @@
+package com.mobycode.ticketproblem.benchmark;
+
+import com.mobycode.ticketproblem.grid.entryprocessor.BookTicketSingle;
+import com.mobycode.ticketproblem.model.*;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCheckedException;
+import org.apache.ignite.marshaller.Marshaller;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Round trips of the booking model through the grid's binary marshaller and through JDK serialisation
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ModelSerializationBenchmark {
+
+    @Param({"Ticket", "Customer", "BookingRequest", "BookingResult", "BookTicketSingle"})
+    private String model;
+
+    private Ignite ignite;
+    private Marshaller marshaller;
+    private Object value;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ignite = BenchmarkGrid.start("modelSerializationBenchmark");
+        marshaller = ignite.configuration().getMarshaller();
+        switch (model) {
+            case "Ticket":
+                Ticket ticket = new Ticket(500L);
+                ticket.setAvailable(false);
+                ticket.setCustomerReference(12345L);
+                value = ticket;
+                break;
+            case "Customer":
+                Customer customer = new Customer(12345L);
+                customer.setDisplayName("customer 12345");
+                value = customer;
+                break;
+            case "BookingRequest":
+                value = new BookingRequest(500L, 12345L);
+                break;
+            case "BookingResult":
+                value = new BookingResult(500L, 12345L, BookTicketResult.TICKET_NOT_AVAILABLE);
+                break;
+            default:
+                value = new BookTicketSingle(500L, 12345L);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ignite.close();
+    }
+
+    @Benchmark
+    public Object binary() throws IgniteCheckedException {
+        return marshaller.unmarshal(marshaller.marshal(value), getClass().getClassLoader());
+    }
+
+    @Benchmark
+    public Object jdk() throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return in.readObject();
+        }
+    }
+}
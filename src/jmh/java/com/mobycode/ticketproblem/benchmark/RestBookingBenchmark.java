@@ -0,0 +1,73 @@
+package com.mobycode.ticketproblem.benchmark;
+
+import com.mobycode.ticketproblem.TicketProblemApplication;
+import org.apache.ignite.Ignite;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+    BookingServiceImpl through the HTTP/JSON route - the application is started in the benchmark JVM and called
+    over loopback with pooled keep-alive connections
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Threads(6)
+@Fork(1)
+public class RestBookingBenchmark {
+
+    private static final String BOOKING_URL = "http://127.0.0.1:8080/ticket/book";
+    private static final long HOT_TICKET = 500L;
+
+    @Param({"HOT", "UNIFORM"})
+    private BookTicketBenchmark.Contention contention;
+
+    private ConfigurableApplicationContext application;
+    private CloseableHttpClient httpClient;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        application = new SpringApplicationBuilder(TicketProblemApplication.class).web(false).run();
+        httpClient = HttpClients.custom().setMaxConnTotal(64).setMaxConnPerRoute(64).build();
+    }
+
+    @Setup(Level.Iteration)
+    public void fillGrid() {
+        Ignite ignite = application.getBean(Ignite.class);
+        BenchmarkGrid.fillTickets(ignite);
+        BenchmarkGrid.fillCustomers(ignite);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() throws IOException {
+        httpClient.close();
+        application.close();
+    }
+
+    @Benchmark
+    public String book() throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long ticketId = contention == BookTicketBenchmark.Contention.HOT ? HOT_TICKET : random.nextLong(1, BenchmarkGrid.NUMBER_OF_TICKETS + 1);
+        HttpPut put = new HttpPut(BOOKING_URL);
+        put.setEntity(new StringEntity(
+                "{\"ticketId\":" + ticketId + ",\"customerId\":" + random.nextLong(1, BenchmarkGrid.NUMBER_OF_CUSTOMERS + 1) + "}",
+                ContentType.APPLICATION_JSON));
+        try (CloseableHttpResponse response = httpClient.execute(put)) {
+            return EntityUtils.toString(response.getEntity());
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.mobycode.ticketproblem.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/*
+    How the load generator spreads bookings over tickets - everyone after one HOT ticket, a ZIPF popularity curve
+    (ticket 1 the most popular) or UNIFORM over all tickets
+ */
+enum TicketSkew {
+    HOT, ZIPF, UNIFORM;
+
+    static final long HOT_TICKET = 500L;
+
+    LongSupplier chooser(int numberOfTickets, double zipfExponent) {
+        switch (this) {
+            case HOT:
+                return () -> HOT_TICKET;
+            case ZIPF:
+                return zipf(numberOfTickets, zipfExponent);
+            default:
+                return () -> ThreadLocalRandom.current().nextLong(1, numberOfTickets + 1);
+        }
+    }
+
+    /*
+        P(ticket k) is proportional to 1/k^exponent - sampled by binary search of the cumulative distribution
+     */
+    private static LongSupplier zipf(int numberOfTickets, double exponent) {
+        double[] cumulative = new double[numberOfTickets];
+        double sum = 0;
+        for (int k = 1; k <= numberOfTickets; k++) {
+            sum += 1 / Math.pow(k, exponent);
+            cumulative[k - 1] = sum;
+        }
+        for (int i = 0; i < numberOfTickets; i++) {
+            cumulative[i] /= sum;
+        }
+        return () -> {
+            int index = Arrays.binarySearch(cumulative, ThreadLocalRandom.current().nextDouble());
+            //not found gives -(insertion point) - 1, the first ticket whose cumulative probability is above the draw
+            return (index < 0 ? -index - 1 : index) + 1L;
+        };
+    }
+}
@@ -0,0 +1,143 @@
+package com.mobycode.ticketproblem.binary;
+
+import com.mobycode.ticketproblem.model.BookingRequest;
+import com.mobycode.ticketproblem.model.BookingResult;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Client of the BinaryBookingServer - books over one persistent connection without joining the grid.
+
+    Bookings are sent without waiting for earlier results, and each one's future is completed when its result
+    arrives, in whatever order that is.  Futures are completed on the client's I/O thread - don't block in their
+    callbacks.  Thread safe - one client can serve a whole application.
+ */
+@Slf4j
+public class BinaryBookingClient implements AutoCloseable {
+
+    private final EventLoopGroup eventLoop = new NioEventLoopGroup(1);
+    private final Channel channel;
+    private final ConcurrentMap<Long, CompletableFuture<BookingResult>> pending = new ConcurrentHashMap<>();
+    private final AtomicLong correlationIds = new AtomicLong();
+
+    public BinaryBookingClient(String host, int port) throws InterruptedException {
+        try {
+            channel = new Bootstrap()
+                    .group(eventLoop)
+                    .channel(NioSocketChannel.class)
+                    .option(ChannelOption.TCP_NODELAY, true)
+                    .option(ChannelOption.SO_KEEPALIVE, true)
+                    .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                    .handler(new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        protected void initChannel(SocketChannel channel) {
+                            channel.pipeline().addLast(BookingFrames.frameDecoder(), new ResultHandler());
+                        }
+                    })
+                    .connect(host, port).sync().channel();
+        } catch (InterruptedException | RuntimeException e) {
+            eventLoop.shutdownGracefully();
+            throw e;
+        }
+    }
+
+    public CompletableFuture<BookingResult> book(BookingRequest bookingRequest) {
+        CompletableFuture<BookingResult> result = send(bookingRequest);
+        channel.flush();
+        return result;
+    }
+
+    /*
+        Sent together in as few packets as the connection allows - results still come back one by one
+     */
+    public List<CompletableFuture<BookingResult>> bookAll(Collection<BookingRequest> bookingRequests) {
+        List<CompletableFuture<BookingResult>> results = new ArrayList<>(bookingRequests.size());
+        bookingRequests.forEach(bookingRequest -> results.add(send(bookingRequest)));
+        channel.flush();
+        return results;
+    }
+
+    public int getInFlight() {
+        return pending.size();
+    }
+
+    @Override
+    public void close() {
+        channel.close().syncUninterruptibly();
+        eventLoop.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    private CompletableFuture<BookingResult> send(BookingRequest bookingRequest) {
+        long correlationId = correlationIds.incrementAndGet();
+        CompletableFuture<BookingResult> result = new CompletableFuture<>();
+        ByteBuf frame = channel.alloc().buffer(BookingFrames.LENGTH_BYTES + BookingFrames.REQUEST_BYTES);
+        try {
+            BookingFrames.writeRequest(frame, correlationId, bookingRequest);
+        } catch (RuntimeException e) {
+            frame.release();
+            result.completeExceptionally(e);
+            return result;
+        }
+        pending.put(correlationId, result);
+        channel.write(frame).addListener((ChannelFuture written) -> {
+            if (!written.isSuccess()) {
+                failed(correlationId, written.cause());
+            }
+        });
+        return result;
+    }
+
+    private void failed(long correlationId, Throwable cause) {
+        CompletableFuture<BookingResult> result = pending.remove(correlationId);
+        if (result != null) {
+            result.completeExceptionally(cause);
+        }
+    }
+
+    private class ResultHandler extends SimpleChannelInboundHandler<ByteBuf> {
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, ByteBuf frame) {
+            long correlationId = frame.readLong();
+            BookingResult bookingResult = BookingFrames.readResult(frame);
+            CompletableFuture<BookingResult> result = pending.remove(correlationId);
+            if (result != null) {
+                result.complete(bookingResult);
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            IOException closed = new IOException("Connection to the booking server closed");
+            pending.keySet().forEach(correlationId -> failed(correlationId, closed));
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            log.warn("Closing connection to the booking server", cause);
+            ctx.close();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.mobycode.ticketproblem.binary;
+
+import com.mobycode.ticketproblem.metrics.BookingInterface;
+import com.mobycode.ticketproblem.metrics.BookingMetrics;
+import com.mobycode.ticketproblem.model.BookTicketResult;
+import com.mobycode.ticketproblem.model.BookingRequest;
+import com.mobycode.ticketproblem.model.BookingResult;
+import com.mobycode.ticketproblem.service.BookingService;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+    Books the requests arriving on one connection.
+
+    Every request is submitted as soon as it is read, without waiting for the ones before it, and its result is
+    written whenever its booking finishes.  Results known straight away (e.g. a sold out ticket) are flushed
+    together once everything read so far has been handled.  A connection with too many bookings in flight stops
+    being read until some finish, so a client sending faster than the grid books is slowed by TCP.
+ */
+@Slf4j
+class BinaryBookingHandler extends ChannelInboundHandlerAdapter {
+
+    private final BookingService bookingService;
+    private final BookingMetrics bookingMetrics;
+    private final int maxInFlight;
+
+    //completed from grid threads as well as the event loop
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    BinaryBookingHandler(BookingService bookingService, BookingMetrics bookingMetrics, int maxInFlight) {
+        this.bookingService = bookingService;
+        this.bookingMetrics = bookingMetrics;
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        ByteBuf frame = (ByteBuf) msg;
+        long correlationId;
+        BookingRequest bookingRequest;
+        try {
+            correlationId = frame.readLong();
+            bookingRequest = BookingFrames.readRequest(frame);
+        } finally {
+            frame.release();
+        }
+        long startNanos = bookingMetrics.started(BookingInterface.BINARY);
+        if (inFlight.incrementAndGet() >= maxInFlight) {
+            ctx.channel().config().setAutoRead(false);
+        }
+        CompletableFuture<BookingResult> booking = bookingService.bookAsync(bookingRequest);
+        if (booking.isDone()) {
+            //flushed in channelReadComplete
+            respond(ctx, correlationId, bookingRequest, booking, startNanos, false);
+        } else {
+            booking.whenComplete((bookingResult, throwable) ->
+                    respond(ctx, correlationId, bookingRequest, booking, startNanos, true));
+        }
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+        ctx.flush();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        //a malformed or oversized frame leaves the stream unreadable - drop the connection
+        log.warn("Closing binary booking connection from {}", ctx.channel().remoteAddress(), cause);
+        ctx.close();
+    }
+
+    private void respond(ChannelHandlerContext ctx, long correlationId, BookingRequest bookingRequest,
+                         CompletableFuture<BookingResult> booking, long startNanos, boolean flush) {
+        BookingResult bookingResult;
+        try {
+            bookingResult = booking.join();
+        } catch (CompletionException e) {
+            log.error("An error occurred booking ticket id:{} for customer id:{}",
+                    bookingRequest.getTicketId(), bookingRequest.getCustomerId(), e.getCause());
+            bookingResult = new BookingResult(bookingRequest, BookTicketResult.BOOKING_ERROR);
+        }
+        bookingMetrics.finished(BookingInterface.BINARY, bookingResult.getBookTicketResult(), startNanos);
+        ByteBuf out = ctx.alloc().buffer(BookingFrames.LENGTH_BYTES + BookingFrames.RESULT_BYTES);
+        BookingFrames.writeResult(out, correlationId, bookingResult);
+        if (flush) {
+            ctx.writeAndFlush(out);
+        } else {
+            ctx.write(out);
+        }
+        if (inFlight.decrementAndGet() < maxInFlight && !ctx.channel().config().isAutoRead()) {
+            ctx.channel().config().setAutoRead(true);
+        }
+    }
+}
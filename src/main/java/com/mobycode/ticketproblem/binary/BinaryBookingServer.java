@@ -0,0 +1,91 @@
+package com.mobycode.ticketproblem.binary;
+
+import com.mobycode.ticketproblem.metrics.BookingMetrics;
+import com.mobycode.ticketproblem.service.BookingService;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+/*
+    Bookings over plain TCP in BookingFrames, next to the HTTP/JSON routes - for clients that don't need JSON
+    (see BinaryBookingClient).  Connections are long lived and carry any number of bookings at once.
+ */
+@Slf4j
+@Component
+public class BinaryBookingServer {
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BookingMetrics bookingMetrics;
+
+    @Value("${ticketproblem.binary.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ticketproblem.binary.host:0.0.0.0}")
+    private String host;
+
+    @Value("${ticketproblem.binary.port:8090}")
+    private int port;
+
+    //0 for netty's default (twice the cores)
+    @Value("${ticketproblem.binary.worker-threads:0}")
+    private int workerThreads;
+
+    @Value("${ticketproblem.binary.max-in-flight-per-connection:1024}")
+    private int maxInFlightPerConnection;
+
+    private EventLoopGroup acceptors;
+    private EventLoopGroup workers;
+    private Channel serverChannel;
+
+    @PostConstruct
+    public void start() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        acceptors = new NioEventLoopGroup(1);
+        workers = new NioEventLoopGroup(workerThreads);
+        serverChannel = new ServerBootstrap()
+                .group(acceptors, workers)
+                .channel(NioServerSocketChannel.class)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childOption(ChannelOption.SO_KEEPALIVE, true)
+                //netty 4.0 doesn't pool by default - frames are small and many
+                .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel channel) {
+                        channel.pipeline().addLast(BookingFrames.frameDecoder(),
+                                new BinaryBookingHandler(bookingService, bookingMetrics, maxInFlightPerConnection));
+                    }
+                })
+                .bind(host, port).sync().channel();
+        log.info("Binary booking protocol listening on {}:{}", host, port);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (serverChannel != null) {
+            serverChannel.close().syncUninterruptibly();
+        }
+        if (acceptors != null) {
+            acceptors.shutdownGracefully();
+            workers.shutdownGracefully();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.mobycode.ticketproblem.binary;
+
+import com.mobycode.ticketproblem.model.BookTicketResult;
+import com.mobycode.ticketproblem.model.BookingRequest;
+import com.mobycode.ticketproblem.model.BookingResult;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+
+import java.nio.charset.StandardCharsets;
+
+/*
+    Frames of the binary booking protocol - shared by the BinaryBookingServer and the BinaryBookingClient.
+
+    A frame is a 4 byte length followed by that many bytes of body, all big endian.  A booking request's body is
+
+        correlation id (long) | ticket id (long) | customer id (long) | idempotency key length (short, -1 for none) | key (UTF-8)
+
+    and the result sent back for it
+
+        correlation id (long) | ticket id (long) | customer id (long) | result (byte, BookTicketResult ordinal)
+
+    The client chooses correlation ids.  Results are sent as bookings finish, not in the order they were asked for,
+    so the id is what pairs a result with its request.  Result ordinals are on the wire - new BookTicketResults only
+    ever go on the end.
+ */
+final class BookingFrames {
+
+    static final int LENGTH_BYTES = 4;
+    static final int REQUEST_BYTES = 8 + 8 + 8 + 2;
+    static final int RESULT_BYTES = 8 + 8 + 8 + 1;
+    //the largest frame either side will read
+    static final int MAX_FRAME_BYTES = 1024;
+    static final int MAX_KEY_BYTES = MAX_FRAME_BYTES - REQUEST_BYTES;
+
+    private static final short NO_KEY = -1;
+    private static final BookTicketResult[] RESULTS = BookTicketResult.values();
+
+    private BookingFrames() {
+    }
+
+    /*
+        Splits the stream into frame bodies (length stripped) - one per channel, it keeps partial frames
+     */
+    static LengthFieldBasedFrameDecoder frameDecoder() {
+        return new LengthFieldBasedFrameDecoder(LENGTH_BYTES + MAX_FRAME_BYTES, 0, LENGTH_BYTES, 0, LENGTH_BYTES);
+    }
+
+    static void writeRequest(ByteBuf out, long correlationId, BookingRequest bookingRequest) {
+        byte[] key = bookingRequest.getIdempotencyKey() == null
+                ? null : bookingRequest.getIdempotencyKey().getBytes(StandardCharsets.UTF_8);
+        if (key != null && key.length > MAX_KEY_BYTES) {
+            throw new IllegalArgumentException("Idempotency keys are limited to " + MAX_KEY_BYTES + " bytes");
+        }
+        out.writeInt(REQUEST_BYTES + (key == null ? 0 : key.length));
+        out.writeLong(correlationId);
+        out.writeLong(bookingRequest.getTicketId());
+        out.writeLong(bookingRequest.getCustomerId());
+        if (key == null) {
+            out.writeShort(NO_KEY);
+        } else {
+            out.writeShort(key.length);
+            out.writeBytes(key);
+        }
+    }
+
+    /*
+        The request in a frame whose correlation id has already been read
+     */
+    static BookingRequest readRequest(ByteBuf in) {
+        long ticketId = in.readLong();
+        long customerId = in.readLong();
+        short keyLength = in.readShort();
+        if (keyLength == NO_KEY) {
+            return new BookingRequest(ticketId, customerId);
+        }
+        if (keyLength < 0 || keyLength > in.readableBytes()) {
+            throw new CorruptedFrameException("Idempotency key length " + keyLength + " overruns the frame");
+        }
+        String key = in.toString(in.readerIndex(), keyLength, StandardCharsets.UTF_8);
+        in.skipBytes(keyLength);
+        return new BookingRequest(ticketId, customerId, key);
+    }
+
+    static void writeResult(ByteBuf out, long correlationId, BookingResult bookingResult) {
+        out.writeInt(RESULT_BYTES);
+        out.writeLong(correlationId);
+        out.writeLong(bookingResult.getTicketId());
+        out.writeLong(bookingResult.getCustomerId());
+        out.writeByte(bookingResult.getBookTicketResult().ordinal());
+    }
+
+    /*
+        The result in a frame whose correlation id has already been read
+     */
+    static BookingResult readResult(ByteBuf in) {
+        long ticketId = in.readLong();
+        long customerId = in.readLong();
+        int result = in.readUnsignedByte();
+        if (result >= RESULTS.length) {
+            throw new CorruptedFrameException("Unknown booking result " + result);
+        }
+        return new BookingResult(ticketId, customerId, RESULTS[result]);
+    }
+}
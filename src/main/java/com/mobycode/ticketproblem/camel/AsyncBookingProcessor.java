@@ -0,0 +1,72 @@
+package com.mobycode.ticketproblem.camel;
+
+import com.mobycode.ticketproblem.metrics.BookingInterface;
+import com.mobycode.ticketproblem.metrics.BookingMetrics;
+import com.mobycode.ticketproblem.model.BookTicketResult;
+import com.mobycode.ticketproblem.model.BookingRequest;
+import com.mobycode.ticketproblem.model.BookingResult;
+import com.mobycode.ticketproblem.service.BookingService;
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.AsyncProcessor;
+import org.apache.camel.Exchange;
+import org.apache.camel.util.AsyncProcessorHelper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/*
+    Books the exchange's BookingRequest without holding the consumer thread.
+
+    The HTTP thread is handed back as soon as the booking is submitted to the grid - the exchange is finished from the
+    Ignite thread that completes the booking (Jetty continuations / netty's event loop take care of the response)
+ */
+@Component
+public class AsyncBookingProcessor implements AsyncProcessor {
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BookingMetrics bookingMetrics;
+
+    @Autowired
+    private BusyResponse busyResponse;
+
+    @Override
+    public boolean process(Exchange exchange, AsyncCallback callback) {
+        long startNanos = bookingMetrics.started(BookingInterface.HTTP);
+        BookingRequest bookingRequest = exchange.getIn().getBody(BookingRequest.class);
+        CompletableFuture<BookingResult> booking = bookingService.bookAsync(bookingRequest);
+        if (booking.isDone()) {
+            //answered without the grid (e.g. a sold out ticket) - stay on this thread
+            complete(exchange, booking, startNanos);
+            callback.done(true);
+            return true;
+        }
+        booking.whenComplete((bookingResult, throwable) -> {
+            complete(exchange, booking, startNanos);
+            callback.done(false);
+        });
+        return false;
+    }
+
+    private void complete(Exchange exchange, CompletableFuture<BookingResult> booking, long startNanos) {
+        try {
+            BookingResult bookingResult = booking.join();
+            exchange.getIn().setBody(bookingResult);
+            //turned away by admission control - tell the client when to come back instead of letting it time out
+            busyResponse.busy(exchange.getIn(), bookingResult.getBookTicketResult());
+            bookingMetrics.finished(BookingInterface.HTTP, bookingResult.getBookTicketResult(), startNanos);
+        } catch (CompletionException e) {
+            exchange.setException(e.getCause());
+            bookingMetrics.finished(BookingInterface.HTTP, BookTicketResult.BOOKING_ERROR, startNanos);
+        }
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        AsyncProcessorHelper.process(this, exchange);
+    }
+}
@@ -0,0 +1,154 @@
+package com.mobycode.ticketproblem.camel;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mobycode.ticketproblem.grid.listener.FreeTicketIndex;
+import com.mobycode.ticketproblem.model.EventAvailability;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.camel.Body;
+import org.apache.camel.Header;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.component.websocket.WebsocketConstants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Pushes each event's free ticket count to websocket subscribers as it changes, so a customer who lost waits to
+    be told rather than retrying bookings to find out.
+
+    Changes come from the FreeTicketIndex's continuous query.  They are only noted as they arrive - every interval
+    the events that changed get one message per subscriber with the count as it is then, however many bookings
+    there were in between.  A subscriber sends an event's id to follow it (and straight away gets the current
+    count), and sends it again within the subscription ttl to keep following it - the websocket component doesn't
+    tell us when a connection goes, so subscriptions that aren't renewed are dropped
+ */
+@Slf4j
+@Component
+public class AvailabilityFeed {
+
+    private static final String PATH = "/availability";
+
+    @Autowired
+    private FreeTicketIndex freeTicketIndex;
+
+    @Autowired
+    private ProducerTemplate producerTemplate;
+
+    @Value("${ticketproblem.feed.host:127.0.0.1}")
+    private String host;
+
+    @Value("${ticketproblem.feed.port:9292}")
+    private int port;
+
+    @Value("${ticketproblem.feed.interval-millis:200}")
+    private long intervalMillis;
+
+    @Value("${ticketproblem.feed.subscription-ttl-seconds:300}")
+    private long subscriptionTtlSeconds;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    //events whose count changed since the last interval
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+
+    //event id -> subscriber connection key -> end of its subscription (epoch millis)
+    private final ConcurrentMap<Long, ConcurrentMap<String, Long>> subscribers = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService publisher;
+
+    public String getEndpointUri() {
+        return "websocket://" + host + ":" + port + PATH;
+    }
+
+    @PostConstruct
+    public void start() {
+        freeTicketIndex.addChangeListener(changed::add);
+        publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "availability-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        publisher.scheduleWithFixedDelay(this::publish, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (publisher != null) {
+            publisher.shutdownNow();
+        }
+    }
+
+    public void subscribe(@Header(WebsocketConstants.CONNECTION_KEY) String connectionKey, @Body String message) {
+        long eventId;
+        try {
+            eventId = Long.parseLong(message.trim());
+        } catch (NumberFormatException e) {
+            log.debug("Ignoring availability subscription to '{}' from {}", message, connectionKey);
+            return;
+        }
+        subscribers.computeIfAbsent(eventId, id -> new ConcurrentHashMap<>())
+                .put(connectionKey, System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(subscriptionTtlSeconds));
+        send(connectionKey, json(availability(eventId)));
+    }
+
+    public int getSubscriptions() {
+        return subscribers.values().stream().mapToInt(ConcurrentMap::size).sum();
+    }
+
+    private void publish() {
+        try {
+            long now = System.currentTimeMillis();
+            for (Iterator<Long> events = changed.iterator(); events.hasNext(); ) {
+                Long eventId = events.next();
+                events.remove();
+                ConcurrentMap<String, Long> eventSubscribers = subscribers.get(eventId);
+                if (eventSubscribers == null || eventSubscribers.isEmpty()) {
+                    continue;
+                }
+                String message = json(availability(eventId));
+                eventSubscribers.forEach((connectionKey, subscribedUntil) -> {
+                    if (subscribedUntil < now) {
+                        eventSubscribers.remove(connectionKey, subscribedUntil);
+                    } else {
+                        send(connectionKey, message);
+                    }
+                });
+            }
+        } catch (Exception e) {
+            //keep publishing - the next change to an event sends its count again
+            log.error("Failed to publish event availability", e);
+        }
+    }
+
+    private EventAvailability availability(long eventId) {
+        long free = freeTicketIndex.freeCount(eventId);
+        return new EventAvailability(eventId, free, free == 0);
+    }
+
+    private String json(EventAvailability availability) {
+        try {
+            return objectMapper.writeValueAsString(availability);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void send(String connectionKey, String message) {
+        try {
+            producerTemplate.sendBodyAndHeader(getEndpointUri(), message, WebsocketConstants.CONNECTION_KEY, connectionKey);
+        } catch (Exception e) {
+            log.debug("Failed to send event availability to {}", connectionKey, e);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.mobycode.ticketproblem.camel;
+
+import com.mobycode.ticketproblem.model.BookTicketResult;
+import com.mobycode.ticketproblem.model.BookingResult;
+import com.mobycode.ticketproblem.model.PoolBookingResult;
+import com.mobycode.ticketproblem.service.AdmissionControl;
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.apache.camel.Processor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/*
+    Bookings turned away by admission control are answered 503 (SERVICE_BUSY) or 429 (TICKET_BUSY) with a
+    Retry-After, so clients come back later instead of timing out.  Goes after the booking in a route - the body is a
+    BookingResult, a PoolBookingResult or a batch of BookingResults.  A batch is only answered busy when every booking
+    in it was turned away - otherwise it is a 200 with a Retry-After for the ones to send again
+ */
+@Component
+public class BusyResponse implements Processor {
+
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    @Override
+    public void process(Exchange exchange) {
+        Object body = exchange.getIn().getBody();
+        if (body instanceof BookingResult) {
+            busy(exchange.getIn(), ((BookingResult) body).getBookTicketResult());
+        } else if (body instanceof PoolBookingResult) {
+            busy(exchange.getIn(), ((PoolBookingResult) body).getBookTicketResult());
+        } else if (body instanceof Collection) {
+            busy(exchange.getIn(), (Collection<?>) body);
+        }
+    }
+
+    public void busy(Message message, BookTicketResult bookTicketResult) {
+        if (isBusy(bookTicketResult)) {
+            message.setHeader(Exchange.HTTP_RESPONSE_CODE, bookTicketResult == BookTicketResult.SERVICE_BUSY ? 503 : 429);
+            message.setHeader("Retry-After", admissionControl.getRetryAfterSeconds());
+        }
+    }
+
+    private void busy(Message message, Collection<?> bookingResults) {
+        int busy = 0;
+        BookTicketResult busiest = BookTicketResult.TICKET_BUSY;
+        for (Object bookingResult : bookingResults) {
+            BookTicketResult bookTicketResult = ((BookingResult) bookingResult).getBookTicketResult();
+            if (isBusy(bookTicketResult)) {
+                busy++;
+                //a node that is busy is the one to report
+                if (bookTicketResult == BookTicketResult.SERVICE_BUSY) {
+                    busiest = bookTicketResult;
+                }
+            }
+        }
+        if (busy > 0 && busy == bookingResults.size()) {
+            busy(message, busiest);
+        } else if (busy > 0) {
+            message.setHeader("Retry-After", admissionControl.getRetryAfterSeconds());
+        }
+    }
+
+    private static boolean isBusy(BookTicketResult bookTicketResult) {
+        return bookTicketResult == BookTicketResult.SERVICE_BUSY || bookTicketResult == BookTicketResult.TICKET_BUSY;
+    }
+}
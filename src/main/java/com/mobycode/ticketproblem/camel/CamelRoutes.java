@@ -1,44 +1,91 @@
 package com.mobycode.ticketproblem.camel;
 
+import com.mobycode.ticketproblem.grid.affinity.TicketAffinity;
+import com.mobycode.ticketproblem.grid.customer.CustomerBookings;
+import com.mobycode.ticketproblem.grid.listener.FreeTicketIndex;
+import com.mobycode.ticketproblem.metrics.BookingMetrics;
+import com.mobycode.ticketproblem.model.AnyTicketRequest;
+import com.mobycode.ticketproblem.model.AvailableTickets;
 import com.mobycode.ticketproblem.model.BookingRequest;
 import com.mobycode.ticketproblem.model.BookingResult;
+import com.mobycode.ticketproblem.model.CustomerTickets;
+import com.mobycode.ticketproblem.model.HoldRequest;
+import com.mobycode.ticketproblem.model.PoolBookingRequest;
+import com.mobycode.ticketproblem.model.PoolBookingResult;
+import com.mobycode.ticketproblem.model.SeatBlockRequest;
+import com.mobycode.ticketproblem.model.SeatBlockResult;
+import com.mobycode.ticketproblem.model.TicketOwner;
 import com.mobycode.ticketproblem.service.BookingService;
 import org.apache.camel.builder.RouteBuilder;
 import org.apache.camel.model.rest.RestBindingMode;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.Map;
+
 @Component
 public class CamelRoutes extends RouteBuilder {
 
     @Autowired
     private BookingService bookingService;
 
+    @Autowired
+    private AsyncBookingProcessor asyncBookingProcessor;
+
+    @Autowired
+    private BusyResponse busyResponse;
+
+    @Autowired
+    private BookingMetrics bookingMetrics;
+
+    @Autowired
+    private TicketAffinity ticketAffinity;
+
+    @Autowired
+    private FreeTicketIndex freeTicketIndex;
+
+    @Autowired
+    private AvailabilityFeed availabilityFeed;
+
+    @Autowired
+    private CustomerBookings customerBookings;
+
+    //jetty or netty4-http - both finish the booking exchange asynchronously
+    @Value("${ticketproblem.rest.component:jetty}")
+    private String restComponent;
+
+    @Value("${ticketproblem.rest.host:127.0.0.1}")
+    private String restHost;
+
+    @Value("${ticketproblem.rest.port:8080}")
+    private int restPort;
 
 
     @Override
     public void configure() throws Exception {
 
         /*
-            uncomment different underlying http components to test them out as desired
-            -all support the camel rest DSL
+            set ticketproblem.rest.component to test out different underlying http components as desired
+            -all support the camel rest DSL, jetty and netty4-http also support asynchronous routing
          */
         restConfiguration()
-                .component("jetty")
-                //.component("netty4-http")
-                //.component("restlet")
+                .component(restComponent)
                 .bindingMode(RestBindingMode.json)
                 .dataFormatProperty("prettyPrint", "true")
-                .host("127.0.0.1")
-                .port(8080)
+                .host(restHost)
+                .port(restPort)
                 .apiContextPath("/api-doc")
                 .apiProperty("api.title", "Ticket Booking API").apiProperty("api.version", "0.1")
                 .apiProperty("cors", "true");
 
 
     /*
-        This camel route provides the HTTP/JSON interface for the booking service
+        These camel routes provide the HTTP/JSON interface for the booking service - single bookings and
+        batches of bookings (results are returned in request order).  Bookings turned away by admission control
+        are answered 503 / 429 with a Retry-After (see BusyResponse)
      */
         rest("/ticket")
                 .description("operations on tickets ")
@@ -48,7 +95,112 @@ public class CamelRoutes extends RouteBuilder {
                 .type(BookingRequest.class)
                 .outType(BookingResult.class)
                 .route()
-                .bean(bookingService);
+                .process(asyncBookingProcessor)
+                .endRest()
+                .put("/book/batch")
+                .type(BookingRequest[].class)
+                .outType(BookingResult[].class)
+                .route()
+                .convertBodyTo(List.class)
+                .bean(bookingService, "bookAll")
+                .process(busyResponse)
+                .endRest()
+                //whichever of an event's free tickets is quickest to get - the result says which one was booked
+                .put("/any")
+                .type(AnyTicketRequest.class)
+                .outType(BookingResult.class)
+                .route()
+                .bean(bookingService, "bookAny")
+                .process(busyResponse)
+                .endRest()
+                //two phase bookings - hold while the customer pays, then confirm or release
+                .put("/hold")
+                .type(HoldRequest.class)
+                .outType(BookingResult.class)
+                .route()
+                .bean(bookingService, "hold")
+                .process(busyResponse)
+                .endRest()
+                .put("/confirm")
+                .type(BookingRequest.class)
+                .outType(BookingResult.class)
+                .route()
+                .bean(bookingService, "confirm")
+                .endRest()
+                .put("/release")
+                .type(BookingRequest.class)
+                .outType(BookingResult.class)
+                .route()
+                .bean(bookingService, "release")
+                .endRest()
+                //which node to send a ticket's bookings to - any node will book it, the owner saves a hop
+                .get("/{ticketId}/owner")
+                .outType(TicketOwner.class)
+                .route()
+                .bean(ticketAffinity, "owner(${header.ticketId})")
+                .endRest()
+                //an event's free tickets a page at a time - ?eventId=1&after=<nextAfter of the last page>&limit=100
+                .get("/available")
+                .outType(AvailableTickets.class)
+                .route()
+                .bean(freeTicketIndex, "page(${header.eventId}, ${header.after}, ${header.limit})");
+
+    /*
+        General admission bookings - a quantity of tickets from an event's pool
+     */
+        rest("/pool")
+                .description("operations on general admission ticket pools")
+                .consumes(MediaType.APPLICATION_JSON_VALUE)
+                .produces(MediaType.APPLICATION_JSON_VALUE)
+                .put("/book")
+                .type(PoolBookingRequest.class)
+                .outType(PoolBookingResult.class)
+                .route()
+                .bean(bookingService, "bookFromPool")
+                .process(busyResponse);
+
+    /*
+        Reserved seating - the best available block of adjacent seats in a section
+     */
+        rest("/seats")
+                .description("operations on reserved seating")
+                .consumes(MediaType.APPLICATION_JSON_VALUE)
+                .produces(MediaType.APPLICATION_JSON_VALUE)
+                .put("/book")
+                .type(SeatBlockRequest.class)
+                .outType(SeatBlockResult.class)
+                .route()
+                .bean(bookingService, "bookSeats");
+
+    /*
+        The tickets a customer has booked or holds
+     */
+        rest("/customer")
+                .description("operations on customers")
+                .produces(MediaType.APPLICATION_JSON_VALUE)
+                .get("/{customerId}/tickets")
+                .outType(CustomerTickets.class)
+                .route()
+                .bean(customerBookings, "ticketsOf(${header.customerId})");
+
+    /*
+        Free ticket counts pushed over a websocket as they change - send an event id to follow the event
+        (see AvailabilityFeed)
+     */
+        from(availabilityFeed.getEndpointUri())
+                .routeId("availabilityFeed")
+                .bean(availabilityFeed, "subscribe");
+
+    /*
+        Booking latency histograms (microseconds) and in flight counts - also published over JMX
+     */
+        rest("/metrics")
+                .description("booking metrics")
+                .produces(MediaType.APPLICATION_JSON_VALUE)
+                .get()
+                .outType(Map.class)
+                .route()
+                .bean(bookingMetrics, "snapshot");
 
     }
 }
@@ -3,9 +3,12 @@ package com.mobycode.ticketproblem.grid;
 
 public enum GridDataNames {
 
-    GRID("ticketBookingDataGrid"),
     MAP_TICKET("ticketMap"),
-    MAP_CUSTOMER("customerMap");
+    MAP_CUSTOMER("customerMap"),
+    MAP_CUSTOMER_BOOKINGS("customerBookingsMap"),
+    MAP_TICKET_POOL("ticketPoolMap"),
+    MAP_POOL_STRIPE("poolStripeMap"),
+    MAP_SECTION_SEAT("sectionSeatMap");
 
     private final String name;
 
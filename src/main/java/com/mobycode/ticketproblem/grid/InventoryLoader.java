@@ -0,0 +1,178 @@
+package com.mobycode.ticketproblem.grid;
+
+import com.mobycode.ticketproblem.model.Customer;
+import com.mobycode.ticketproblem.model.Ticket;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.IgniteDataStreamer;
+import org.apache.ignite.cache.query.QueryCursor;
+import org.apache.ignite.cache.query.ScanQuery;
+import org.apache.ignite.lang.IgniteFuture;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.cache.Cache;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/*
+    Bulk loads tickets and customers into the grid before an on-sale.
+
+    Entries go through a data streamer - they are buffered per node and sent to each node in batches rather than
+    one put (and one round trip) per key.  Entries already in the grid are kept (a load never overwrites a booking) -
+    tickets of one event can be cleared and reloaded without touching the other events' tickets.
+
+    File formats are one entry per line - "ticketId,eventId" for tickets and "customerId[,displayName]" for customers
+ */
+@Slf4j
+@Component
+public class InventoryLoader {
+
+    private final Ignite ignite;
+
+    @Value("${ticketproblem.loader.per-node-buffer-size:8192}")
+    private int perNodeBufferSize = 8192;
+
+    @Value("${ticketproblem.loader.per-node-parallel-operations:16}")
+    private int perNodeParallelOperations = 16;
+
+    @Autowired
+    public InventoryLoader(Ignite ignite) {
+        this.ignite = ignite;
+    }
+
+    public LoadReport loadTickets(Stream<Ticket> tickets) {
+        return load(GridDataNames.MAP_TICKET.getName(), tickets.map(ticket -> new Entry<>(ticket.getId(), ticket)));
+    }
+
+    public LoadReport loadCustomers(Stream<Customer> customers) {
+        return load(GridDataNames.MAP_CUSTOMER.getName(), customers.map(customer -> new Entry<>(customer.getId(), customer)));
+    }
+
+    /*
+        Remove every ticket of the event then load its new tickets - other events are untouched
+     */
+    public LoadReport reloadEvent(long eventId, Stream<Ticket> tickets) {
+        long start = System.currentTimeMillis();
+        IgniteCache<Long, Ticket> ticketMap = ignite.cache(GridDataNames.MAP_TICKET.getName());
+        long removed = 0;
+        try (IgniteDataStreamer<Long, Ticket> streamer = streamer(GridDataNames.MAP_TICKET.getName());
+             QueryCursor<Cache.Entry<Long, Ticket>> eventTickets =
+                     ticketMap.query(new ScanQuery<Long, Ticket>((ticketId, ticket) -> ticket.getEventId() == eventId))) {
+            streamer.allowOverwrite(true);
+            for (Cache.Entry<Long, Ticket> eventTicket : eventTickets) {
+                streamer.removeData(eventTicket.getKey());
+                removed++;
+            }
+        }
+        log.debug("Removed {} tickets of event id:{} in {} ms", removed, eventId, System.currentTimeMillis() - start);
+        return loadTickets(tickets.filter(ticket -> ticket.getEventId() == eventId));
+    }
+
+    public static Stream<Ticket> generateTickets(long eventId, long firstTicketId, long count) {
+        return LongStream.range(firstTicketId, firstTicketId + count).mapToObj(ticketId -> new Ticket(ticketId, eventId));
+    }
+
+    public static Stream<Customer> generateCustomers(long firstCustomerId, long count) {
+        return LongStream.range(firstCustomerId, firstCustomerId + count).mapToObj(Customer::new);
+    }
+
+    public static Stream<Ticket> readTickets(Path file) {
+        return lines(file).map(line -> {
+            String[] fields = line.split(",");
+            return new Ticket(Long.parseLong(fields[0].trim()), Long.parseLong(fields[1].trim()));
+        });
+    }
+
+    public static Stream<Customer> readCustomers(Path file) {
+        return lines(file).map(line -> {
+            String[] fields = line.split(",", 2);
+            Customer customer = new Customer(Long.parseLong(fields[0].trim()));
+            if (fields.length > 1) {
+                customer.setDisplayName(fields[1].trim());
+            }
+            return customer;
+        });
+    }
+
+    /*
+        Entries are counted as their batches are acknowledged - loaded, or failed when the batch failed
+     */
+    private <K, V> LoadReport load(String mapName, Stream<Entry<K, V>> entries) {
+        long start = System.currentTimeMillis();
+        LongAdder loaded = new LongAdder();
+        LongAdder failed = new LongAdder();
+        AtomicLong unacknowledged = new AtomicLong();
+        //closing the streamer flushes whatever is still buffered
+        try (IgniteDataStreamer<K, V> streamer = streamer(mapName)) {
+            entries.forEach(entry -> {
+                IgniteFuture<?> addition = streamer.addData(entry.key, entry.value);
+                unacknowledged.incrementAndGet();
+                addition.listen(added -> {
+                    try {
+                        added.get();
+                        loaded.increment();
+                    } catch (Exception e) {
+                        failed.increment();
+                    }
+                    if (unacknowledged.decrementAndGet() == 0) {
+                        synchronized (unacknowledged) {
+                            unacknowledged.notifyAll();
+                        }
+                    }
+                });
+            });
+        }
+        //the last acknowledgements may still be on their way to the listeners
+        synchronized (unacknowledged) {
+            while (unacknowledged.get() > 0) {
+                try {
+                    unacknowledged.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        LoadReport loadReport = new LoadReport(mapName, loaded.sum(), failed.sum(), System.currentTimeMillis() - start);
+        if (loadReport.getFailed() > 0) {
+            log.warn(loadReport.toString());
+        } else {
+            log.info(loadReport.toString());
+        }
+        return loadReport;
+    }
+
+    private <K, V> IgniteDataStreamer<K, V> streamer(String mapName) {
+        IgniteDataStreamer<K, V> streamer = ignite.dataStreamer(mapName);
+        streamer.perNodeBufferSize(perNodeBufferSize);
+        streamer.perNodeParallelOperations(perNodeParallelOperations);
+        return streamer;
+    }
+
+    private static Stream<String> lines(Path file) {
+        try {
+            return Files.lines(file).filter(line -> !line.trim().isEmpty());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static class Entry<K, V> {
+        private final K key;
+        private final V value;
+
+        private Entry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
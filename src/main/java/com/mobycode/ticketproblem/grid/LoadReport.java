@@ -0,0 +1,25 @@
+package com.mobycode.ticketproblem.grid;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*
+    Outcome of a bulk load into the grid - entries acknowledged by the grid, and those in batches it failed to load
+ */
+@Getter
+@AllArgsConstructor
+public class LoadReport {
+    private final String mapName;
+    private final long entries;
+    private final long failed;
+    private final long millis;
+
+    public long getEntriesPerSecond() {
+        return millis == 0 ? entries * 1000 : entries * 1000 / millis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d entries loaded into %s in %d ms (%d entries/s), %d failed", entries, mapName, millis, getEntriesPerSecond(), failed);
+    }
+}
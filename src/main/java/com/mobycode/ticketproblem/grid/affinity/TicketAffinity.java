@@ -0,0 +1,49 @@
+package com.mobycode.ticketproblem.grid.affinity;
+
+import com.mobycode.ticketproblem.grid.GridDataNames;
+import com.mobycode.ticketproblem.model.TicketOwner;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.cache.affinity.Affinity;
+import org.apache.ignite.cluster.ClusterNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/*
+    Which node owns (is primary for) a ticket.
+
+    Each server node publishes the address of its HTTP/JSON interface as a node attribute so clients and gateways
+    can be told where to send a ticket's bookings
+ */
+@Component
+public class TicketAffinity {
+
+    public static final String REST_ADDRESS_ATTRIBUTE = "ticketproblem.rest.address";
+
+    private final Ignite ignite;
+
+    @Autowired
+    public TicketAffinity(Ignite ignite) {
+        this.ignite = ignite;
+    }
+
+    public boolean isPrimaryHere(long ticketId) {
+        return affinity().isPrimary(ignite.cluster().localNode(), ticketId);
+    }
+
+    public ClusterNode primary(long ticketId) {
+        return affinity().mapKeyToNode(ticketId);
+    }
+
+    public TicketOwner owner(long ticketId) {
+        ClusterNode primary = primary(ticketId);
+        return new TicketOwner(
+                ticketId,
+                affinity().partition(ticketId),
+                primary == null ? null : primary.id().toString(),
+                primary == null ? null : primary.attribute(REST_ADDRESS_ATTRIBUTE));
+    }
+
+    private Affinity<Long> affinity() {
+        return ignite.affinity(GridDataNames.MAP_TICKET.getName());
+    }
+}
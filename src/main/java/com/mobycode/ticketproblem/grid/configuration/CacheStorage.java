@@ -0,0 +1,101 @@
+package com.mobycode.ticketproblem.grid.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ignite.cache.CacheAtomicityMode;
+import org.apache.ignite.cache.CacheMemoryMode;
+import org.apache.ignite.cache.CacheMode;
+import org.apache.ignite.cache.CacheWriteSynchronizationMode;
+import org.apache.ignite.cache.affinity.rendezvous.RendezvousAffinityFunction;
+import org.apache.ignite.cache.eviction.lru.LruEvictionPolicy;
+import org.apache.ignite.configuration.CacheConfiguration;
+
+/*
+    How one cache keeps its entries - bound from ticketproblem.grid.defaults.* and ticketproblem.grid.caches.<name>.*
+    (see GridStorageProperties).  Anything left unset (null) falls back to the defaults, then to Ignite's own.
+ */
+@Slf4j
+@Getter
+@Setter
+public class CacheStorage {
+
+    //ONHEAP_TIERED, OFFHEAP_TIERED (entries off heap, keys and values) or OFFHEAP_VALUES (values only)
+    private CacheMemoryMode memoryMode;
+
+    //off heap memory per node - 0 unlimited, -1 none.  Unset is unlimited for the off heap modes
+    private Long offHeapMaxMemoryMb;
+
+    //entries evicted from memory (heap or off heap) are swapped to disk rather than lost
+    private Boolean swapEnabled;
+
+    private CacheAtomicityMode atomicityMode;
+
+    private Integer backups;
+
+    //FULL_SYNC answers an update once it is on every backup, PRIMARY_SYNC once it is on the primary
+    private CacheWriteSynchronizationMode writeSynchronizationMode;
+
+    private Integer partitions;
+
+    //ONHEAP_TIERED only - entries kept on heap, least recently used beyond that go off heap / to swap
+    private Integer evictionMaxSize;
+
+    /*
+        These settings, with any left unset taken from the defaults
+     */
+    CacheStorage over(CacheStorage defaults) {
+        CacheStorage merged = new CacheStorage();
+        merged.memoryMode = memoryMode != null ? memoryMode : defaults.memoryMode;
+        merged.offHeapMaxMemoryMb = offHeapMaxMemoryMb != null ? offHeapMaxMemoryMb : defaults.offHeapMaxMemoryMb;
+        merged.swapEnabled = swapEnabled != null ? swapEnabled : defaults.swapEnabled;
+        merged.atomicityMode = atomicityMode != null ? atomicityMode : defaults.atomicityMode;
+        merged.backups = backups != null ? backups : defaults.backups;
+        merged.writeSynchronizationMode = writeSynchronizationMode != null ? writeSynchronizationMode : defaults.writeSynchronizationMode;
+        merged.partitions = partitions != null ? partitions : defaults.partitions;
+        merged.evictionMaxSize = evictionMaxSize != null ? evictionMaxSize : defaults.evictionMaxSize;
+        return merged;
+    }
+
+    /*
+        hasStore - whether evicted entries can be read back through a cache store
+     */
+    <K, V> CacheConfiguration<K, V> applyTo(CacheConfiguration<K, V> cacheCfg, boolean hasStore) {
+        cacheCfg.setCacheMode(CacheMode.PARTITIONED);
+        if (memoryMode != null) {
+            cacheCfg.setMemoryMode(memoryMode);
+        }
+        if (offHeapMaxMemoryMb != null) {
+            cacheCfg.setOffHeapMaxMemory(offHeapMaxMemoryMb < 0 ? -1 : offHeapMaxMemoryMb * 1024 * 1024);
+        } else if (memoryMode != null && memoryMode != CacheMemoryMode.ONHEAP_TIERED) {
+            cacheCfg.setOffHeapMaxMemory(0);
+        }
+        if (swapEnabled != null) {
+            cacheCfg.setSwapEnabled(swapEnabled);
+        }
+        if (atomicityMode != null) {
+            cacheCfg.setAtomicityMode(atomicityMode);
+        }
+        if (backups != null) {
+            cacheCfg.setBackups(backups);
+        }
+        if (writeSynchronizationMode != null) {
+            cacheCfg.setWriteSynchronizationMode(writeSynchronizationMode);
+        }
+        if (partitions != null) {
+            cacheCfg.setAffinity(new RendezvousAffinityFunction(false, partitions));
+        }
+        if (evictionMaxSize != null) {
+            if (memoryMode != null && memoryMode != CacheMemoryMode.ONHEAP_TIERED) {
+                log.warn("Ignoring eviction-max-size for {} - entries are already off heap in {}", cacheCfg.getName(), memoryMode);
+            } else {
+                if (cacheCfg.getOffHeapMaxMemory() < 0 && !cacheCfg.isSwapEnabled() && !hasStore) {
+                    log.warn("Entries evicted from {} have nowhere to go (no off heap memory, swap or store) and will be lost",
+                            cacheCfg.getName());
+                }
+                cacheCfg.setEvictionPolicy(new LruEvictionPolicy<K, V>(evictionMaxSize));
+            }
+        }
+        return cacheCfg;
+    }
+}
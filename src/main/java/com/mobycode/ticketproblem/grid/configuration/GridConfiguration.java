@@ -1,51 +1,151 @@
 package com.mobycode.ticketproblem.grid.configuration;
 
 import com.mobycode.ticketproblem.grid.GridDataNames;
+import com.mobycode.ticketproblem.grid.affinity.TicketAffinity;
+import com.mobycode.ticketproblem.grid.store.TicketCacheStoreFactory;
+import com.mobycode.ticketproblem.grid.store.TicketStoreProperties;
 import com.mobycode.ticketproblem.model.Customer;
+import com.mobycode.ticketproblem.model.CustomerTickets;
+import com.mobycode.ticketproblem.model.PoolStripeKey;
+import com.mobycode.ticketproblem.model.SeatMap;
+import com.mobycode.ticketproblem.model.SectionKey;
 import com.mobycode.ticketproblem.model.Ticket;
+import com.mobycode.ticketproblem.model.TicketPool;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.ignite.Ignite;
 import org.apache.ignite.IgniteCache;
-import org.apache.ignite.Ignition;
-import org.apache.ignite.cache.CacheMode;
+import org.apache.ignite.IgniteCheckedException;
+import org.apache.ignite.IgniteSpring;
+import org.apache.ignite.cache.affinity.rendezvous.RendezvousAffinityFunction;
 import org.apache.ignite.configuration.CacheConfiguration;
 import org.apache.ignite.configuration.IgniteConfiguration;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.Collections;
+
 /*
 
 Configure and start a partitioned data grid + provide grid objects for Spring injection
 
  */
+@Slf4j
 @Configuration
+@EnableConfigurationProperties({GridStorageProperties.class, TicketStoreProperties.class})
 public class GridConfiguration {
 
-    @Autowired
-    Ignite ignite;
-
+    /*
+        Everything the grid is started with comes in as parameters - this configuration's own fields may not be
+        injected yet when another bean needs the grid.
+        gridStorageProperties - memory mode, atomicity, backups etc. of each cache
+        ticketStoreProperties - write-behind persistence of the ticket map
+        applicationContext - lets grid jobs (e.g. ColocatedBooking) have Spring beans injected with @SpringResource
+        restHost, restPort - published as a node attribute so clients can be sent to a ticket's owner (see TicketAffinity)
+        gridName - only needed to run more than one node in a JVM (the cluster tests) - blank for the default grid
+     */
     @Bean
-    Ignite ignite (){
-        CacheConfiguration cacheCfg = new CacheConfiguration(GridDataNames.GRID.getName());
-        cacheCfg.setCacheMode(CacheMode.PARTITIONED);
-        cacheCfg.setBackups(1);
+    Ignite ignite (GridStorageProperties gridStorageProperties,
+                   TicketStoreProperties ticketStoreProperties,
+                   ApplicationContext applicationContext,
+                   @Value("${ticketproblem.rest.host:127.0.0.1}") String restHost,
+                   @Value("${ticketproblem.rest.port:8080}") int restPort,
+                   @Value("${ticketproblem.grid-name:}") String gridName) throws IgniteCheckedException {
         IgniteConfiguration cfg = new IgniteConfiguration();
-        cfg.setCacheConfiguration(cacheCfg);
-        Ignite ignite = Ignition.start(cfg);
-        IgniteCache<Long, Ticket> ticketMap = ignite.getOrCreateCache(GridDataNames.MAP_TICKET.getName());
-        IgniteCache<Long, Customer> customerMap = ignite.getOrCreateCache(GridDataNames.MAP_CUSTOMER.getName());
+        cfg.setGridName(gridName.isEmpty() ? null : gridName);
+        cfg.setCacheConfiguration(
+                ticketCacheConfiguration(gridStorageProperties, ticketStoreProperties),
+                cacheConfiguration(gridStorageProperties, GridDataNames.MAP_CUSTOMER),
+                customerBookingsCacheConfiguration(gridStorageProperties),
+                cacheConfiguration(gridStorageProperties, GridDataNames.MAP_TICKET_POOL),
+                cacheConfiguration(gridStorageProperties, GridDataNames.MAP_POOL_STRIPE),
+                cacheConfiguration(gridStorageProperties, GridDataNames.MAP_SECTION_SEAT));
+        cfg.setUserAttributes(Collections.singletonMap(TicketAffinity.REST_ADDRESS_ATTRIBUTE, "http://" + restHost + ":" + restPort));
+        Ignite ignite = IgniteSpring.start(cfg, applicationContext);
+        if (ticketStoreProperties.isEnabled()) {
+            loadTickets(ignite);
+        }
         return ignite;
     }
 
+    static void loadTickets(Ignite ignite) {
+        IgniteCache<Long, Ticket> ticketMap = ignite.cache(GridDataNames.MAP_TICKET.getName());
+        long start = System.currentTimeMillis();
+        ticketMap.loadCache(null);
+        log.info("Loaded {} tickets from the ticket store in {} ms", ticketMap.sizeLong(), System.currentTimeMillis() - start);
+    }
+
+    private static <K, V> CacheConfiguration<K, V> cacheConfiguration(GridStorageProperties gridStorageProperties, GridDataNames cache) {
+        return gridStorageProperties.forCache(cache.getName()).applyTo(new CacheConfiguration<>(cache.getName()), false);
+    }
+
+    /*
+        Partitioned like the customer map whatever its own settings say, so a customer's bookings are on the same
+        node as the customer (see CustomerBookings)
+     */
+    private static CacheConfiguration<Long, CustomerTickets> customerBookingsCacheConfiguration(GridStorageProperties gridStorageProperties) {
+        CacheConfiguration<Long, CustomerTickets> customerBookingsCfg = cacheConfiguration(gridStorageProperties, GridDataNames.MAP_CUSTOMER_BOOKINGS);
+        Integer customerPartitions = gridStorageProperties.forCache(GridDataNames.MAP_CUSTOMER.getName()).getPartitions();
+        customerBookingsCfg.setAffinity(customerPartitions == null
+                ? new RendezvousAffinityFunction()
+                : new RendezvousAffinityFunction(false, customerPartitions));
+        return customerBookingsCfg;
+    }
+
+    static CacheConfiguration<Long, Ticket> ticketCacheConfiguration(GridStorageProperties gridStorageProperties,
+                                                                     TicketStoreProperties ticketStoreProperties) {
+        boolean storeEnabled = ticketStoreProperties.isEnabled();
+        CacheConfiguration<Long, Ticket> ticketCacheCfg = gridStorageProperties.forCache(GridDataNames.MAP_TICKET.getName())
+                .applyTo(new CacheConfiguration<>(GridDataNames.MAP_TICKET.getName()), storeEnabled);
+        //SQL over the ticket's annotated fields (the free ticket index)
+        ticketCacheCfg.setIndexedTypes(Long.class, Ticket.class);
+        if (storeEnabled) {
+            ticketCacheCfg.setCacheStoreFactory(new TicketCacheStoreFactory(ticketStoreProperties.getUrl(),
+                    ticketStoreProperties.getUser(), ticketStoreProperties.getPassword()));
+            ticketCacheCfg.setReadThrough(true);
+            ticketCacheCfg.setWriteThrough(true);
+            //updates are coalesced per key and flushed when either limit is reached
+            TicketStoreProperties.WriteBehind writeBehind = ticketStoreProperties.getWriteBehind();
+            ticketCacheCfg.setWriteBehindEnabled(true);
+            ticketCacheCfg.setWriteBehindFlushSize(writeBehind.getFlushSize());
+            ticketCacheCfg.setWriteBehindFlushFrequency(writeBehind.getFlushFrequencyMillis());
+            ticketCacheCfg.setWriteBehindBatchSize(writeBehind.getBatchSize());
+        }
+        return ticketCacheCfg;
+    }
+
     @Bean
-    IgniteCache<Long, Ticket> ticketMap (){
+    IgniteCache<Long, Ticket> ticketMap (Ignite ignite){
         return ignite.getOrCreateCache(GridDataNames.MAP_TICKET.getName());
     }
 
 
     @Bean
-    IgniteCache<Long, Customer> customerMap (){
+    IgniteCache<Long, Customer> customerMap (Ignite ignite){
         return ignite.getOrCreateCache(GridDataNames.MAP_CUSTOMER.getName());
     }
 
+    @Bean
+    IgniteCache<Long, CustomerTickets> customerBookingsMap (Ignite ignite){
+        return ignite.getOrCreateCache(GridDataNames.MAP_CUSTOMER_BOOKINGS.getName());
+    }
+
+    @Bean
+    IgniteCache<Long, TicketPool> ticketPoolMap (Ignite ignite){
+        return ignite.getOrCreateCache(GridDataNames.MAP_TICKET_POOL.getName());
+    }
+
+
+    @Bean
+    IgniteCache<PoolStripeKey, Long> poolStripeMap (Ignite ignite){
+        return ignite.getOrCreateCache(GridDataNames.MAP_POOL_STRIPE.getName());
+    }
+
+    @Bean
+    IgniteCache<SectionKey, SeatMap> sectionSeatMap (Ignite ignite){
+        return ignite.getOrCreateCache(GridDataNames.MAP_SECTION_SEAT.getName());
+    }
+
 }
@@ -0,0 +1,31 @@
+package com.mobycode.ticketproblem.grid.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+    Storage of the grid's caches - defaults for every cache, with overrides per cache name e.g.
+
+    ticketproblem.grid.defaults.backups=1
+    ticketproblem.grid.caches.sectionSeatMap.memory-mode=ONHEAP_TIERED
+
+    Ready made sets of these are in the throughput and lowgc Spring profiles (application-<profile>.properties)
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ticketproblem.grid")
+public class GridStorageProperties {
+
+    private CacheStorage defaults = new CacheStorage();
+
+    private Map<String, CacheStorage> caches = new HashMap<>();
+
+    CacheStorage forCache(String cacheName) {
+        CacheStorage cacheStorage = caches.get(cacheName);
+        return cacheStorage == null ? defaults : cacheStorage.over(defaults);
+    }
+}
@@ -0,0 +1,233 @@
+package com.mobycode.ticketproblem.grid.customer;
+
+import com.mobycode.ticketproblem.grid.GridDataNames;
+import com.mobycode.ticketproblem.grid.entryprocessor.GiveTicketBack;
+import com.mobycode.ticketproblem.grid.entryprocessor.SettleCustomerTicket;
+import com.mobycode.ticketproblem.grid.journal.BookingJournal;
+import com.mobycode.ticketproblem.model.BookTicketResult;
+import com.mobycode.ticketproblem.model.BookingResult;
+import com.mobycode.ticketproblem.model.CustomerTickets;
+import com.mobycode.ticketproblem.model.Ticket;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.cache.CacheEntryProcessor;
+import org.apache.ignite.cache.query.ContinuousQuery;
+import org.apache.ignite.cache.query.QueryCursor;
+import org.apache.ignite.cache.query.ScanQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.cache.Cache;
+import javax.cache.event.CacheEntryEvent;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/*
+    Which tickets each customer has booked or holds, and how many they may have.
+
+    Kept in the customer bookings map, keyed by customer id with the customer map's partitioning so a customer's
+    tickets live on the same node as the customer.  With a limit (max-tickets above 0) every node keeps how many
+    tickets each customer has, fed by a continuous query on the map, and turns a customer at their limit away
+    (CUSTOMER_LIMIT_REACHED) before the booking goes anywhere - refused bookings cost no hop.  A booking that gets
+    its ticket makes one hop, to the customer's primary node, to add it to their tickets.  That add has the last
+    word: the local count trails the map, and when a customer's concurrent bookings take them past their limit the
+    add is refused and the ticket given back (and journaled as released) before the booking is answered.  Losing
+    bookings never get that far.  If the add fails outright the ticket is given back too (BOOKING_ERROR) - a booking
+    only stands once the customer's tickets have it.
+
+    What this gives up against reserving a place before the ticket is touched: the limit is only checked after the
+    ticket is booked, so between the booking and the give back the ticket is taken - other buyers are told
+    TICKET_NOT_AVAILABLE for a ticket that goes back on sale a hop later.  A customer one short of their limit firing
+    many bookings at once keeps that many tickets off sale for that long, and gets exactly one of them.  In exchange
+    the many losing bookings of a hot ticket make no hop to the customer's node at all.
+
+    Tickets leave when they stop being the customer's - cancelled, released, expired or removed.  A continuous query
+    on the ticket map ships each of those to the customer's primary node only (TicketLeftCustomerHere), which takes
+    the ticket out.  The map is rebuilt from the ticket map by the oldest server node when it starts - the first node
+    of a new cluster, before any other node holds part of the map
+ */
+@Slf4j
+@Component
+public class CustomerBookings {
+
+    private final Ignite ignite;
+    private final IgniteCache<Long, Ticket> ticketMap;
+    private final IgniteCache<Long, Ticket> asyncTicketMap;
+    private final IgniteCache<Long, CustomerTickets> customerBookingsMap;
+    private final IgniteCache<Long, CustomerTickets> asyncCustomerBookingsMap;
+    private final BookingJournal bookingJournal;
+
+    //tickets booked or held per customer - 0 for no limit
+    @Value("${ticketproblem.customer.max-tickets:0}")
+    private int maxTickets;
+
+    //customer id -> tickets they have, as last heard from the customer bookings map
+    private final ConcurrentMap<Long, Integer> ticketCounts = new ConcurrentHashMap<>();
+
+    private QueryCursor<Cache.Entry<Long, Ticket>> goneCursor;
+    private QueryCursor<Cache.Entry<Long, CustomerTickets>> countCursor;
+
+    @Autowired
+    public CustomerBookings(Ignite ignite, IgniteCache<Long, Ticket> ticketMap, IgniteCache<Long, CustomerTickets> customerBookingsMap,
+                            BookingJournal bookingJournal) {
+        this.ignite = ignite;
+        this.ticketMap = ticketMap;
+        this.asyncTicketMap = ticketMap.withAsync();
+        this.customerBookingsMap = customerBookingsMap;
+        this.asyncCustomerBookingsMap = customerBookingsMap.withAsync();
+        this.bookingJournal = bookingJournal;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (ignite.cluster().forServers().forOldest().node().isLocal()) {
+            rebuild();
+        }
+        ContinuousQuery<Long, Ticket> gone = new ContinuousQuery<>();
+        gone.setRemoteFilter(new TicketLeftCustomerHere(ignite.cluster().localNode().id()));
+        gone.setLocalListener(events -> events.forEach(this::gone));
+        goneCursor = ticketMap.query(gone);
+        if (isLimited()) {
+            ContinuousQuery<Long, CustomerTickets> counts = new ContinuousQuery<>();
+            counts.setInitialQuery(new ScanQuery<>());
+            counts.setLocalListener(events -> events.forEach(event -> count(event.getKey(), event.getValue())));
+            countCursor = customerBookingsMap.query(counts);
+            countCursor.forEach(entry -> count(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (goneCursor != null) {
+            goneCursor.close();
+        }
+        if (countCursor != null) {
+            countCursor.close();
+        }
+    }
+
+    public boolean isLimited() {
+        return maxTickets > 0;
+    }
+
+    /*
+        As this node last heard - may trail the customer's latest bookings and cancellations
+     */
+    public int ticketCount(long customerId) {
+        return ticketCounts.getOrDefault(customerId, 0);
+    }
+
+    public boolean isAtLimit(long customerId) {
+        return isLimited() && ticketCount(customerId) >= maxTickets;
+    }
+
+    /*
+        Runs a booking within the customer's limit - CUSTOMER_LIMIT_REACHED (for ticketId) without running it when
+        they have no room left
+     */
+    public CompletableFuture<BookingResult> withinLimit(long ticketId, long customerId, Supplier<CompletableFuture<BookingResult>> booking) {
+        if (isAtLimit(customerId)) {
+            return CompletableFuture.completedFuture(new BookingResult(ticketId, customerId, BookTicketResult.CUSTOMER_LIMIT_REACHED));
+        }
+        return booking.get().thenCompose(this::recorded);
+    }
+
+    /*
+        Adds the ticket a booking got (if any) to the customer's tickets - completes with the booking's result once
+        they have it, or CUSTOMER_LIMIT_REACHED once the ticket is given back when they have no room for it
+     */
+    public CompletableFuture<BookingResult> recorded(BookingResult bookingResult) {
+        BookTicketResult result = bookingResult.getBookTicketResult();
+        if (result != BookTicketResult.TICKET_BOOKED && result != BookTicketResult.TICKET_HELD) {
+            return CompletableFuture.completedFuture(bookingResult);
+        }
+        return invoke(asyncCustomerBookingsMap, bookingResult.getCustomerId(), SettleCustomerTicket.booked(bookingResult.getTicketId(), maxTickets))
+                .handle((added, throwable) -> {
+                    if (throwable != null) {
+                        //a booking the customer's tickets don't know of would escape the limit
+                        log.error("Failed to record the booking of ticket id:{} by customer id:{}",
+                                bookingResult.getTicketId(), bookingResult.getCustomerId(), throwable);
+                        return giveBack(bookingResult, BookTicketResult.BOOKING_ERROR);
+                    }
+                    return added ? CompletableFuture.completedFuture(bookingResult)
+                            : giveBack(bookingResult, BookTicketResult.CUSTOMER_LIMIT_REACHED);
+                }).thenCompose(Function.identity());
+    }
+
+    public CustomerTickets ticketsOf(long customerId) {
+        CustomerTickets customerTickets = customerBookingsMap.get(customerId);
+        return customerTickets == null ? new CustomerTickets(customerId) : customerTickets;
+    }
+
+    /*
+        Undo a booking the customer's tickets couldn't take, answering it with result
+     */
+    private CompletableFuture<BookingResult> giveBack(BookingResult bookingResult, BookTicketResult result) {
+        long ticketId = bookingResult.getTicketId();
+        long customerId = bookingResult.getCustomerId();
+        BookingResult refused = new BookingResult(ticketId, customerId, result);
+        return invoke(asyncTicketMap, ticketId, new GiveTicketBack(customerId)).thenCompose(givenBack -> givenBack
+                ? bookingJournal.released(ticketId).thenApply(durable -> refused)
+                : CompletableFuture.completedFuture(refused))
+                .exceptionally(throwable -> {
+                    log.error("Failed to give back ticket id:{} booked by customer id:{}", ticketId, customerId, throwable);
+                    return new BookingResult(ticketId, customerId, BookTicketResult.BOOKING_ERROR);
+                });
+    }
+
+    private void rebuild() {
+        Map<Long, CustomerTickets> rebuilt = new HashMap<>();
+        try (QueryCursor<Cache.Entry<Long, Ticket>> tickets = ticketMap.query(
+                new ScanQuery<Long, Ticket>((ticketId, ticket) -> ticket.getCustomerReference() != Ticket.NO_CUSTOMER))) {
+            tickets.forEach(entry -> rebuilt.computeIfAbsent(entry.getValue().getCustomerReference(), CustomerTickets::new)
+                    .add(entry.getKey()));
+        }
+        if (!rebuilt.isEmpty()) {
+            customerBookingsMap.putAll(rebuilt);
+            log.info("Rebuilt the bookings of {} customers from the ticket map", rebuilt.size());
+        }
+    }
+
+    private void count(long customerId, CustomerTickets customerTickets) {
+        if (customerTickets == null) {
+            ticketCounts.remove(customerId);
+        } else {
+            ticketCounts.put(customerId, customerTickets.count());
+        }
+    }
+
+    private void gone(CacheEntryEvent<? extends Long, ? extends Ticket> event) {
+        long customerId = event.getOldValue().getCustomerReference();
+        invoke(asyncCustomerBookingsMap, customerId, SettleCustomerTicket.gone(event.getKey())).whenComplete((ignored, throwable) -> {
+            if (throwable != null) {
+                log.error("Failed to remove ticket id:{} from the bookings of customer id:{}", event.getKey(), customerId, throwable);
+            }
+        });
+    }
+
+    private static <V, T> CompletableFuture<T> invoke(IgniteCache<Long, V> asyncCache, long key, CacheEntryProcessor<Long, V, T> entryProcessor) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            asyncCache.invoke(key, entryProcessor);
+            asyncCache.<T>future().listen(completed -> {
+                try {
+                    result.complete(completed.get());
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,39 @@
+package com.mobycode.ticketproblem.grid.customer;
+
+import com.mobycode.ticketproblem.grid.GridDataNames;
+import com.mobycode.ticketproblem.model.Ticket;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.cache.CacheEntryEventSerializableFilter;
+import org.apache.ignite.cluster.ClusterNode;
+import org.apache.ignite.resources.IgniteInstanceResource;
+
+import javax.cache.event.CacheEntryEvent;
+import java.util.UUID;
+
+/*
+    Remote filter of the ticket map's continuous query in CustomerBookings - runs where the ticket changed and only
+    ships tickets that stopped being a customer's to the node subscribed (nodeId) when it is that customer's
+    primary node.  Each removal goes to one node instead of every node
+ */
+public class TicketLeftCustomerHere implements CacheEntryEventSerializableFilter<Long, Ticket> {
+
+    private final UUID nodeId;
+
+    @IgniteInstanceResource
+    private transient Ignite ignite;
+
+    public TicketLeftCustomerHere(UUID nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public boolean evaluate(CacheEntryEvent<? extends Long, ? extends Ticket> event) {
+        Ticket before = event.getOldValue();
+        if (before == null || before.getCustomerReference() == Ticket.NO_CUSTOMER
+                || (event.getValue() != null && event.getValue().getCustomerReference() == before.getCustomerReference())) {
+            return false;
+        }
+        ClusterNode primary = ignite.<Long>affinity(GridDataNames.MAP_CUSTOMER_BOOKINGS.getName()).mapKeyToNode(before.getCustomerReference());
+        return primary != null && primary.id().equals(nodeId);
+    }
+}
@@ -0,0 +1,40 @@
+package com.mobycode.ticketproblem.grid.entryprocessor;
+
+import com.mobycode.ticketproblem.model.PoolStripeKey;
+import org.apache.ignite.binary.BinaryObjectException;
+import org.apache.ignite.binary.BinaryReader;
+import org.apache.ignite.binary.BinaryWriter;
+import org.apache.ignite.binary.Binarylizable;
+import org.apache.ignite.cache.CacheEntryProcessor;
+
+import javax.cache.processor.MutableEntry;
+
+/*
+    Entry processor returning tickets to one stripe of a pool (given back or moved there by a rebalance)
+ */
+public class AddToStripe implements CacheEntryProcessor<PoolStripeKey, Long, Long>, Binarylizable {
+
+    private long amount;
+
+    public AddToStripe(long amount) {
+        this.amount = amount;
+    }
+
+    @Override
+    public Long process(MutableEntry<PoolStripeKey, Long> mutableEntry, Object... objects) {
+        Long remaining = mutableEntry.getValue();
+        long updated = (remaining == null ? 0 : remaining) + amount;
+        mutableEntry.setValue(updated);
+        return updated;
+    }
+
+    @Override
+    public void writeBinary(BinaryWriter writer) throws BinaryObjectException {
+        writer.rawWriter().writeLong(amount);
+    }
+
+    @Override
+    public void readBinary(BinaryReader reader) throws BinaryObjectException {
+        amount = reader.rawReader().readLong();
+    }
+}
@@ -0,0 +1,188 @@
+package com.mobycode.ticketproblem.grid.entryprocessor;
+
+import com.mobycode.ticketproblem.grid.GridDataNames;
+import com.mobycode.ticketproblem.grid.listener.FreeTicketIndex;
+import com.mobycode.ticketproblem.model.AnyTicketRequest;
+import com.mobycode.ticketproblem.model.BookTicketResult;
+import com.mobycode.ticketproblem.model.BookingResult;
+import com.mobycode.ticketproblem.model.Ticket;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.cache.affinity.Affinity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+    Books whichever free ticket of an event is quickest to get, instead of one the buyer named.
+
+    Each node hands out tickets from its own primary partitions, so nodes never compete for a ticket and the
+    booking invoke runs against local data.  Within a node every partition has a queue of candidate ticket ids,
+    refilled by reading the partition (FreeTicketIndex.freeTickets) when it runs dry - a poll gives a candidate to
+    exactly one buyer so the invoke that books it is uncontended.  Buyers of an event take turns round the node's
+    partitions with a shared cursor, skipping those the index says have nothing left, so a booking allocates
+    nothing and never looks at another node's partitions.  A candidate may be gone by the time it is polled
+    (booked by id, held) - the buyer simply takes the next.  A node with none of the event's free tickets left
+    passes the booking to one that has some (ColocatedAnyTicket).
+ */
+@Slf4j
+@Component
+public class BookAnyTicket {
+
+    //ticket id of a booking result when no ticket was booked
+    public static final long NO_TICKET = 0L;
+
+    private final Ignite ignite;
+    private final IgniteCache<Long, Ticket> ticketMap;
+    private final FreeTicketIndex freeTicketIndex;
+
+    //stale candidates a buyer will try before giving up on this node
+    @Value("${ticketproblem.any-ticket.max-attempts:16}")
+    private int maxAttempts;
+
+    //event id -> candidate ticket ids by partition, and where the next buyer starts
+    private final ConcurrentMap<Long, Candidates> candidates = new ConcurrentHashMap<>();
+
+    private Affinity<Long> affinity;
+    private volatile PrimaryPartitions primaryPartitions;
+
+    @Autowired
+    public BookAnyTicket(Ignite ignite, IgniteCache<Long, Ticket> ticketMap, FreeTicketIndex freeTicketIndex) {
+        this.ignite = ignite;
+        this.ticketMap = ticketMap;
+        this.freeTicketIndex = freeTicketIndex;
+    }
+
+    @PostConstruct
+    public void start() {
+        affinity = ignite.affinity(GridDataNames.MAP_TICKET.getName());
+    }
+
+    public BookingResult book(AnyTicketRequest anyTicketRequest) {
+        BookingResult bookingResult = bookHere(anyTicketRequest);
+        if (bookingResult.getBookTicketResult() != BookTicketResult.TICKET_NOT_AVAILABLE) {
+            return bookingResult;
+        }
+        Long elsewhere = freeTicketIndex.anyFreeTicket(anyTicketRequest.getEventId());
+        return elsewhere == null ? bookingResult : forward(elsewhere, anyTicketRequest);
+    }
+
+    /*
+        Book from this node's primary partitions only
+     */
+    public BookingResult bookHere(AnyTicketRequest anyTicketRequest) {
+        long customerId = anyTicketRequest.getCustomerId();
+        Long ticketId;
+        for (int attempt = 0; attempt < maxAttempts && (ticketId = nextCandidate(anyTicketRequest.getEventId())) != null; attempt++) {
+            try {
+                BookingResult bookingResult = ticketMap.invoke(ticketId, new BookTicketSingle(ticketId, customerId));
+                if (bookingResult.getBookTicketResult() == BookTicketResult.TICKET_BOOKED) {
+                    return bookingResult;
+                }
+            } catch (Exception e) {
+                log.error("An error occurred booking any ticket of event id:{} (ticket id:{}) for customer id:{}",
+                        anyTicketRequest.getEventId(), ticketId, customerId, e);
+                return new BookingResult(ticketId, customerId, BookTicketResult.BOOKING_ERROR);
+            }
+        }
+        return new BookingResult(NO_TICKET, customerId, BookTicketResult.TICKET_NOT_AVAILABLE);
+    }
+
+    private BookingResult forward(long ticketId, AnyTicketRequest anyTicketRequest) {
+        try {
+            return ignite.compute().affinityCall(GridDataNames.MAP_TICKET.getName(), ticketId, new ColocatedAnyTicket(anyTicketRequest));
+        } catch (Exception e) {
+            log.error("An error occurred forwarding a booking of any ticket of event id:{} for customer id:{}",
+                    anyTicketRequest.getEventId(), anyTicketRequest.getCustomerId(), e);
+            return new BookingResult(NO_TICKET, anyTicketRequest.getCustomerId(), BookTicketResult.BOOKING_ERROR);
+        }
+    }
+
+    /*
+        A candidate from the next of this node's partitions that may have free tickets - null when it has none
+     */
+    private Long nextCandidate(long eventId) {
+        int[] primary = primaryPartitions();
+        if (primary.length == 0) {
+            return null;
+        }
+        Candidates eventCandidates = candidates.computeIfAbsent(eventId, id -> new Candidates(affinity.partitions()));
+        for (int i = 0; i < primary.length; i++) {
+            int partition = primary[Math.floorMod(eventCandidates.cursor.getAndIncrement(), primary.length)];
+            if (freeTicketIndex.mayHaveFreeTickets(eventId, partition)) {
+                Long ticketId = poll(eventId, partition, queue(eventCandidates.queues, partition));
+                if (ticketId != null) {
+                    return ticketId;
+                }
+            }
+        }
+        return null;
+    }
+
+    private Long poll(long eventId, int partition, Queue<Long> queue) {
+        Long ticketId = queue.poll();
+        if (ticketId != null) {
+            return ticketId;
+        }
+        synchronized (queue) {
+            //another buyer may have refilled it first
+            ticketId = queue.poll();
+            if (ticketId == null) {
+                queue.addAll(freeTicketIndex.freeTickets(eventId, partition));
+                ticketId = queue.poll();
+            }
+        }
+        return ticketId;
+    }
+
+    private static Queue<Long> queue(AtomicReferenceArray<Queue<Long>> queues, int partition) {
+        Queue<Long> queue = queues.get(partition);
+        if (queue == null) {
+            queues.compareAndSet(partition, null, new ConcurrentLinkedQueue<>());
+            queue = queues.get(partition);
+        }
+        return queue;
+    }
+
+
+    /*
+        Recomputed when the topology changes
+     */
+    private int[] primaryPartitions() {
+        long topologyVersion = ignite.cluster().topologyVersion();
+        PrimaryPartitions current = primaryPartitions;
+        if (current == null || current.topologyVersion != topologyVersion) {
+            current = new PrimaryPartitions(topologyVersion, affinity.primaryPartitions(ignite.cluster().localNode()));
+            primaryPartitions = current;
+        }
+        return current.primary;
+    }
+
+    private static class PrimaryPartitions {
+        private final long topologyVersion;
+        private final int[] primary;
+
+        private PrimaryPartitions(long topologyVersion, int[] primary) {
+            this.topologyVersion = topologyVersion;
+            this.primary = primary;
+        }
+    }
+
+    private static class Candidates {
+        private final AtomicReferenceArray<Queue<Long>> queues;
+        private final AtomicInteger cursor = new AtomicInteger();
+
+        private Candidates(int partitions) {
+            this.queues = new AtomicReferenceArray<>(partitions);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.mobycode.ticketproblem.grid.entryprocessor;
+
+import com.mobycode.ticketproblem.model.*;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ignite.IgniteCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+    Books tickets from general admission pools.
+
+    A pool's remaining count is split over several stripe keys so buyers spread over N independent entry locks
+    instead of queueing on one.  Each buyer starts at a random stripe and takes the whole quantity from the first
+    stripe that can cover it.  When a stripe runs short the pool is rebalanced - what's left is moved from the fuller
+    stripes to the emptier ones - and a buyer no single stripe can serve gathers from several stripes, giving back
+    what it took if the pool as a whole can't cover the quantity.
+ */
+@Slf4j
+@Component
+public class BookFromPool {
+
+    private final IgniteCache<Long, TicketPool> ticketPoolMap;
+    private final IgniteCache<PoolStripeKey, Long> poolStripeMap;
+
+    //pool stripe counts never change so they are cached to keep the pool entry off the booking path
+    private final Map<Long, Integer> stripeCounts = new ConcurrentHashMap<>();
+    //pools this node is currently rebalancing
+    private final Map<Long, AtomicBoolean> rebalancing = new ConcurrentHashMap<>();
+    //rebalances make blocking grid calls - on their own thread, not the common pool's
+    private final ExecutorService rebalancer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "pool-rebalance");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public BookFromPool(IgniteCache<Long, TicketPool> ticketPoolMap, IgniteCache<PoolStripeKey, Long> poolStripeMap) {
+        this.ticketPoolMap = ticketPoolMap;
+        this.poolStripeMap = poolStripeMap;
+    }
+
+    @PreDestroy
+    public void stop() {
+        rebalancer.shutdownNow();
+    }
+
+    public void createPool(TicketPool ticketPool) {
+        Map<PoolStripeKey, Long> stripes = new HashMap<>();
+        long perStripe = ticketPool.getCapacity() / ticketPool.getStripes();
+        long extra = ticketPool.getCapacity() % ticketPool.getStripes();
+        for (int stripe = 0; stripe < ticketPool.getStripes(); stripe++) {
+            stripes.put(new PoolStripeKey(ticketPool.getEventId(), stripe), perStripe + (stripe < extra ? 1 : 0));
+        }
+        poolStripeMap.putAll(stripes);
+        ticketPoolMap.put(ticketPool.getEventId(), ticketPool);
+        stripeCounts.put(ticketPool.getEventId(), ticketPool.getStripes());
+    }
+
+    public PoolBookingResult book(PoolBookingRequest poolBookingRequest) {
+        Long eventId = poolBookingRequest.getEventId();
+        Integer requested = poolBookingRequest.getQuantity();
+        try {
+            Integer stripes = stripeCount(eventId);
+            if (stripes == null || requested == null || requested <= 0) {
+                return new PoolBookingResult(poolBookingRequest, BookTicketResult.BOOKING_ERROR);
+            }
+            long quantity = requested;
+            int start = ThreadLocalRandom.current().nextInt(stripes);
+            for (int i = 0; i < stripes; i++) {
+                PoolStripeKey key = new PoolStripeKey(eventId, (start + i) % stripes);
+                if (poolStripeMap.invoke(key, new TakeFromStripe(quantity, true)) == quantity) {
+                    if (i > 0) {
+                        rebalanceAsync(eventId);
+                    }
+                    return booked(poolBookingRequest);
+                }
+            }
+            rebalanceAsync(eventId);
+            return gather(eventId, quantity, stripes, start)
+                    ? booked(poolBookingRequest)
+                    : new PoolBookingResult(poolBookingRequest, BookTicketResult.TICKET_NOT_AVAILABLE);
+        } catch (Exception e) {
+            log.error("An error occurred attempting to book {} tickets for event id:{} and customer id:{}",
+                    requested, eventId, poolBookingRequest.getCustomerId(), e);
+            return new PoolBookingResult(poolBookingRequest, BookTicketResult.BOOKING_ERROR);
+        }
+    }
+
+    public long remaining(Long eventId) {
+        Integer stripes = stripeCount(eventId);
+        if (stripes == null) {
+            return 0;
+        }
+        long remaining = 0;
+        for (Long stripeRemaining : poolStripeMap.getAll(stripeKeys(eventId, stripes)).values()) {
+            remaining += stripeRemaining;
+        }
+        return remaining;
+    }
+
+    /*
+        Even out a pool's stripes.  Tickets are taken from stripes above the average before being added to the ones
+        below it so the pool's total is never over counted while they are moving
+     */
+    public void rebalance(Long eventId) {
+        Integer stripes = stripeCount(eventId);
+        if (stripes == null) {
+            return;
+        }
+        Map<PoolStripeKey, Long> current = poolStripeMap.getAll(stripeKeys(eventId, stripes));
+        long total = 0;
+        for (Long stripeRemaining : current.values()) {
+            total += stripeRemaining;
+        }
+        long target = total / stripes;
+        long moving = 0;
+        for (Map.Entry<PoolStripeKey, Long> stripe : current.entrySet()) {
+            if (stripe.getValue() > target) {
+                moving += poolStripeMap.invoke(stripe.getKey(), new TakeFromStripe(stripe.getValue() - target, false));
+            }
+        }
+        for (Map.Entry<PoolStripeKey, Long> stripe : current.entrySet()) {
+            if (moving > 0 && stripe.getValue() < target) {
+                long amount = Math.min(moving, target - stripe.getValue());
+                poolStripeMap.invoke(stripe.getKey(), new AddToStripe(amount));
+                moving -= amount;
+            }
+        }
+        if (moving > 0) {
+            poolStripeMap.invoke(new PoolStripeKey(eventId, 0), new AddToStripe(moving));
+        }
+        log.debug("Rebalanced {} remaining tickets over {} stripes for event id:{}", total, stripes, eventId);
+    }
+
+    private void rebalanceAsync(Long eventId) {
+        AtomicBoolean running = rebalancing.computeIfAbsent(eventId, id -> new AtomicBoolean());
+        if (running.compareAndSet(false, true)) {
+            rebalancer.execute(() -> {
+                try {
+                    rebalance(eventId);
+                } catch (Exception e) {
+                    log.error("An error occurred rebalancing the pool for event id:{}", eventId, e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        }
+    }
+
+    /*
+        Take what each stripe has until the quantity is covered, giving everything back if the pool runs out first
+     */
+    private boolean gather(Long eventId, long quantity, int stripes, int start) {
+        Map<PoolStripeKey, Long> taken = new HashMap<>();
+        long total = 0;
+        for (int i = 0; i < stripes && total < quantity; i++) {
+            PoolStripeKey key = new PoolStripeKey(eventId, (start + i) % stripes);
+            long stripeTaken = poolStripeMap.invoke(key, new TakeFromStripe(quantity - total, false));
+            if (stripeTaken > 0) {
+                taken.put(key, stripeTaken);
+                total += stripeTaken;
+            }
+        }
+        if (total == quantity) {
+            return true;
+        }
+        taken.forEach((key, amount) -> poolStripeMap.invoke(key, new AddToStripe(amount)));
+        return false;
+    }
+
+    private PoolBookingResult booked(PoolBookingRequest poolBookingRequest) {
+        log.info("pool tickets booked successful - event id was: {}, customer id was: {}, quantity was: {}",
+                poolBookingRequest.getEventId(), poolBookingRequest.getCustomerId(), poolBookingRequest.getQuantity());
+        return new PoolBookingResult(poolBookingRequest, BookTicketResult.TICKET_BOOKED);
+    }
+
+    private Integer stripeCount(Long eventId) {
+        Integer stripes = stripeCounts.get(eventId);
+        if (stripes == null) {
+            TicketPool ticketPool = ticketPoolMap.get(eventId);
+            if (ticketPool == null) {
+                return null;
+            }
+            stripes = ticketPool.getStripes();
+            stripeCounts.put(eventId, stripes);
+        }
+        return stripes;
+    }
+
+    private static Set<PoolStripeKey> stripeKeys(Long eventId, int stripes) {
+        Set<PoolStripeKey> keys = new LinkedHashSet<>(stripes);
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            keys.add(new PoolStripeKey(eventId, stripe));
+        }
+        return keys;
+    }
+}
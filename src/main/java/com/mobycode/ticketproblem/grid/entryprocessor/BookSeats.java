@@ -0,0 +1,93 @@
+package com.mobycode.ticketproblem.grid.entryprocessor;
+
+import com.mobycode.ticketproblem.model.BookTicketResult;
+import com.mobycode.ticketproblem.model.SeatBlockRequest;
+import com.mobycode.ticketproblem.model.SeatBlockResult;
+import com.mobycode.ticketproblem.model.SeatMap;
+import com.mobycode.ticketproblem.model.SectionKey;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ignite.IgniteCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+    Books blocks of adjacent reserved seats - a section's seat map is one cache entry so the whole block is found and
+    claimed in one invoke, with no multi-key transaction or lock ordering
+ */
+@Slf4j
+@Component
+public class BookSeats {
+
+    private final IgniteCache<SectionKey, SeatMap> sectionSeatMap;
+
+    //section widths never change so they are cached to turn claimed seat indexes into row and seat
+    private final Map<SectionKey, Integer> seatsPerRow = new ConcurrentHashMap<>();
+
+    @Autowired
+    public BookSeats(IgniteCache<SectionKey, SeatMap> sectionSeatMap) {
+        this.sectionSeatMap = sectionSeatMap;
+    }
+
+    public void createSection(SeatMap seatMap) {
+        SectionKey key = new SectionKey(seatMap.getEventId(), seatMap.getSection());
+        sectionSeatMap.put(key, seatMap);
+        seatsPerRow.put(key, seatMap.getSeatsPerRow());
+    }
+
+    public SeatBlockResult book(SeatBlockRequest seatBlockRequest) {
+        SectionKey key = new SectionKey(seatBlockRequest.getEventId(), seatBlockRequest.getSection());
+        Integer quantity = seatBlockRequest.getQuantity();
+        Long customerId = seatBlockRequest.getCustomerId();
+        try {
+            Integer width = seatsPerRow(key);
+            if (width == null || quantity == null || quantity <= 0 || customerId == null) {
+                return new SeatBlockResult(seatBlockRequest, BookTicketResult.BOOKING_ERROR);
+            }
+            Integer first = sectionSeatMap.invoke(key, new ClaimSeatBlock(quantity, customerId));
+            if (first == null) {
+                return new SeatBlockResult(seatBlockRequest, BookTicketResult.BOOKING_ERROR);
+            }
+            if (first < 0) {
+                return new SeatBlockResult(seatBlockRequest, BookTicketResult.TICKET_NOT_AVAILABLE);
+            }
+            return new SeatBlockResult(seatBlockRequest, BookTicketResult.TICKET_BOOKED, first / width, first % width);
+        } catch (Exception e) {
+            log.error("An error occurred attempting to book {} seats in section:{} of event id:{} for customer id:{}",
+                    quantity, key.getSection(), key.getEventId(), customerId, e);
+            return new SeatBlockResult(seatBlockRequest, BookTicketResult.BOOKING_ERROR);
+        }
+    }
+
+    /*
+        Return a booked block to sale - false if the customer didn't book that block
+     */
+    public boolean release(long eventId, int section, long customerId, int row, int firstSeat, int quantity) {
+        SectionKey key = new SectionKey(eventId, section);
+        Integer width = seatsPerRow(key);
+        if (width == null || firstSeat < 0 || quantity <= 0 || firstSeat + quantity > width) {
+            return false;
+        }
+        return sectionSeatMap.invoke(key, new ReleaseSeatBlock(row * width + firstSeat, quantity, customerId));
+    }
+
+    public int freeSeats(long eventId, int section) {
+        SeatMap seatMap = sectionSeatMap.get(new SectionKey(eventId, section));
+        return seatMap == null ? 0 : seatMap.getFreeSeats();
+    }
+
+    private Integer seatsPerRow(SectionKey key) {
+        Integer width = seatsPerRow.get(key);
+        if (width == null) {
+            //created on another node
+            SeatMap seatMap = sectionSeatMap.get(key);
+            if (seatMap != null) {
+                width = seatMap.getSeatsPerRow();
+                seatsPerRow.put(key, width);
+            }
+        }
+        return width;
+    }
+}
@@ -1,14 +1,22 @@
 package com.mobycode.ticketproblem.grid.entryprocessor;
 
+import com.mobycode.ticketproblem.metrics.BookingInterface;
+import com.mobycode.ticketproblem.metrics.BookingMetrics;
 import com.mobycode.ticketproblem.model.BookTicketResult;
 import com.mobycode.ticketproblem.model.BookingRequest;
 import com.mobycode.ticketproblem.model.BookingResult;
 import com.mobycode.ticketproblem.model.Ticket;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.ignite.IgniteCache;
+import org.apache.ignite.lang.IgniteFuture;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorResult;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
 /*
     Entry processor to book one ticket for one customer - the ticket is locked for the duration of the invocation
  */
@@ -20,33 +28,175 @@ public class BookTicket {
 
     private IgniteCache<Long, Ticket> ticketMap;
 
-    @Autowired
+    //asynchronous view of the ticket map - operations on it return immediately and publish a future
+    private IgniteCache<Long, Ticket> asyncTicketMap;
+
+    private BookingMetrics bookingMetrics;
+
     public BookTicket(IgniteCache<Long, Ticket> ticketMap) {
+        this(ticketMap, new BookingMetrics());
+    }
+
+    @Autowired
+    public BookTicket(IgniteCache<Long, Ticket> ticketMap, BookingMetrics bookingMetrics) {
         this.ticketMap = ticketMap;
+        this.asyncTicketMap = ticketMap.withAsync();
+        this.bookingMetrics = bookingMetrics;
     }
 
     public BookingResult book(BookingRequest bookingRequest){
         return book(bookingRequest.getTicketId(),bookingRequest.getCustomerId());
     }
 
-    private BookingResult book(Long ticketId, Long customerId){
+    /*
+        Book a batch of requests with one invokeAll - requests for the same ticket are arbitrated together under a
+        single entry lock and Ignite sends each node the keys it owns in one message.  Results are in request order
+     */
+    public List<BookingResult> bookAll(List<BookingRequest> bookingRequests) {
+        //request positions grouped by ticket, sorted so entry locks are always taken in the same order
+        Map<Long, List<Integer>> positionsByTicket = new TreeMap<>();
+        for (int i = 0; i < bookingRequests.size(); i++) {
+            positionsByTicket.computeIfAbsent(bookingRequests.get(i).getTicketId(), ticketId -> new ArrayList<>()).add(i);
+        }
+        Map<Long, EntryProcessor<Long, Ticket, List<BookTicketResult>>> processors = new TreeMap<>();
+        positionsByTicket.forEach((ticketId, positions) -> {
+            long[] customerIds = new long[positions.size()];
+            for (int i = 0; i < customerIds.length; i++) {
+                customerIds[i] = bookingRequests.get(positions.get(i)).getCustomerId();
+            }
+            processors.put(ticketId, new BookTicketBatch(customerIds));
+        });
+
+        BookingResult[] results = new BookingResult[bookingRequests.size()];
+        long startNanos = startedAll(bookingRequests.size());
+        Map<Long, EntryProcessorResult<List<BookTicketResult>>> processorResults;
         try {
-            return ticketMap.invoke(ticketId, (mutableEntry, objects) -> {
-                Ticket ticket = mutableEntry.getValue();
-                if (ticket.getAvailable()) {
-                    ticket.setAvailable(false);
-                    ticket.setCustomerReference(customerId);
-                    mutableEntry.setValue(ticket);
-                    log.info("ticket booked successful - ticket id was: {}, customer id was: {}",ticketId,customerId);
-                    return new BookingResult(new BookingRequest(ticketId,customerId),BookTicketResult.TICKET_BOOKED);
+            processorResults = ticketMap.invokeAll(processors);
+        } catch (Exception e) {
+            log.error("An error occurred attempting to book a batch of {} tickets", bookingRequests.size(), e);
+            processorResults = Collections.emptyMap();
+        }
+        for (Map.Entry<Long, List<Integer>> entry : positionsByTicket.entrySet()) {
+            List<BookTicketResult> ticketResults = ticketResults(entry.getKey(), processorResults.get(entry.getKey()));
+            List<Integer> positions = entry.getValue();
+            for (int i = 0; i < positions.size(); i++) {
+                int position = positions.get(i);
+                BookTicketResult result = ticketResults == null ? BookTicketResult.BOOKING_ERROR : ticketResults.get(i);
+                if (result == BookTicketResult.TICKET_BOOKED) {
+                    log.info("ticket booked successful - ticket id was: {}, customer id was: {}",
+                            entry.getKey(), bookingRequests.get(position).getCustomerId());
                 }
-                return new BookingResult(new BookingRequest(ticketId,customerId),BookTicketResult.TICKET_NOT_AVAILABLE);
+                results[position] = new BookingResult(bookingRequests.get(position), result);
+                bookingMetrics.finished(BookingInterface.GRID, result, startNanos);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private List<BookTicketResult> ticketResults(Long ticketId, EntryProcessorResult<List<BookTicketResult>> processorResult) {
+        if (processorResult == null) {
+            return null;
+        }
+        try {
+            return processorResult.get();
+        } catch (Exception e) {
+            log.error("An error occurred attempting to book a batch for ticket id:{}", ticketId, e);
+            return null;
+        }
+    }
+
+    /*
+        Asynchronously arbitrate a batch of requests for one ticket with a single invoke - results are in request order
+     */
+    public CompletableFuture<List<BookingResult>> bookBatchAsync(Long ticketId, List<BookingRequest> bookingRequests) {
+        long[] customerIds = new long[bookingRequests.size()];
+        for (int i = 0; i < customerIds.length; i++) {
+            customerIds[i] = bookingRequests.get(i).getCustomerId();
+        }
+        CompletableFuture<List<BookingResult>> result = new CompletableFuture<>();
+        long startNanos = startedAll(bookingRequests.size());
+        try {
+            asyncTicketMap.invoke(ticketId, new BookTicketBatch(customerIds));
+            IgniteFuture<List<BookTicketResult>> future = asyncTicketMap.future();
+            future.listen(completed -> {
+                List<BookTicketResult> ticketResults;
+                try {
+                    ticketResults = completed.get();
+                } catch (Exception e) {
+                    log.error("An error occurred attempting to book a batch for ticket id:{}", ticketId, e);
+                    ticketResults = null;
+                }
+                result.complete(batchResults(ticketId, bookingRequests, ticketResults, startNanos));
             });
+        } catch (Exception e) {
+            log.error("An error occurred attempting to book a batch for ticket id:{}", ticketId, e);
+            result.complete(batchResults(ticketId, bookingRequests, null, startNanos));
+        }
+        return result;
+    }
+
+    private List<BookingResult> batchResults(Long ticketId, List<BookingRequest> bookingRequests,
+                                             List<BookTicketResult> ticketResults, long startNanos) {
+        List<BookingResult> results = new ArrayList<>(bookingRequests.size());
+        for (int i = 0; i < bookingRequests.size(); i++) {
+            BookTicketResult result = ticketResults == null ? BookTicketResult.BOOKING_ERROR : ticketResults.get(i);
+            if (result == BookTicketResult.TICKET_BOOKED) {
+                log.info("ticket booked successful - ticket id was: {}, customer id was: {}",
+                        ticketId, bookingRequests.get(i).getCustomerId());
+            }
+            results.add(new BookingResult(bookingRequests.get(i), result));
+            bookingMetrics.finished(BookingInterface.GRID, result, startNanos);
+        }
+        return results;
+    }
+
+    private BookingResult book(long ticketId, long customerId){
+        long startNanos = bookingMetrics.started(BookingInterface.GRID);
+        BookingResult bookingResult;
+        try {
+            bookingResult = ticketMap.invoke(ticketId, new BookTicketSingle(ticketId, customerId));
         } catch (Exception e){
             log.error("An occurred attempting to book a ticket with ticketid:{} and customerid:{}", ticketId, customerId, e);
-            return new BookingResult(new BookingRequest(ticketId,customerId),BookTicketResult.BOOKING_ERROR);
+            bookingResult = new BookingResult(ticketId, customerId, BookTicketResult.BOOKING_ERROR);
         }
+        bookingMetrics.finished(BookingInterface.GRID, bookingResult.getBookTicketResult(), startNanos);
+        return bookingResult;
     }
 
+    private long startedAll(int bookings) {
+        long startNanos = 0;
+        for (int i = 0; i < bookings; i++) {
+            startNanos = bookingMetrics.started(BookingInterface.GRID);
+        }
+        return startNanos;
+    }
+
+    /*
+        Book without blocking the calling thread - the returned future is completed by an Ignite thread when the
+        invocation finishes
+     */
+    public CompletableFuture<BookingResult> bookAsync(BookingRequest bookingRequest) {
+        final long ticketId = bookingRequest.getTicketId();
+        final long customerId = bookingRequest.getCustomerId();
+        CompletableFuture<BookingResult> result = new CompletableFuture<>();
+        long startNanos = bookingMetrics.started(BookingInterface.GRID);
+        result.thenAccept(bookingResult -> bookingMetrics.finished(BookingInterface.GRID, bookingResult.getBookTicketResult(), startNanos));
+        try {
+            asyncTicketMap.invoke(ticketId, new BookTicketSingle(ticketId, customerId));
+            IgniteFuture<BookingResult> future = asyncTicketMap.future();
+            future.listen(completed -> {
+                try {
+                    result.complete(completed.get());
+                } catch (Exception e) {
+                    log.error("An occurred attempting to book a ticket with ticketid:{} and customerid:{}", ticketId, customerId, e);
+                    result.complete(new BookingResult(ticketId, customerId, BookTicketResult.BOOKING_ERROR));
+                }
+            });
+        } catch (Exception e) {
+            log.error("An occurred attempting to book a ticket with ticketid:{} and customerid:{}", ticketId, customerId, e);
+            result.complete(new BookingResult(ticketId, customerId, BookTicketResult.BOOKING_ERROR));
+        }
+        return result;
+    }
 
 }
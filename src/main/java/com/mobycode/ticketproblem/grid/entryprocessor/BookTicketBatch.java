@@ -0,0 +1,57 @@
+package com.mobycode.ticketproblem.grid.entryprocessor;
+
+import com.mobycode.ticketproblem.model.BookTicketResult;
+import com.mobycode.ticketproblem.model.Ticket;
+import org.apache.ignite.binary.BinaryObjectException;
+import org.apache.ignite.binary.BinaryReader;
+import org.apache.ignite.binary.BinaryWriter;
+import org.apache.ignite.binary.Binarylizable;
+import org.apache.ignite.cache.CacheEntryProcessor;
+
+import javax.cache.processor.MutableEntry;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    Entry processor arbitrating a batch of booking attempts for one ticket under a single entry lock.
+
+    Customers are tried in the order given - the first one to find the ticket available gets it - and a result
+    is returned for each of them in the same order.
+ */
+public class BookTicketBatch implements CacheEntryProcessor<Long, Ticket, List<BookTicketResult>>, Binarylizable {
+
+    private long[] customerIds;
+
+    public BookTicketBatch(long[] customerIds) {
+        this.customerIds = customerIds;
+    }
+
+    @Override
+    public List<BookTicketResult> process(MutableEntry<Long, Ticket> mutableEntry, Object... objects) {
+        List<BookTicketResult> results = new ArrayList<>(customerIds.length);
+        Ticket ticket = mutableEntry.getValue();
+        for (long customerId : customerIds) {
+            if (ticket == null) {
+                results.add(BookTicketResult.BOOKING_ERROR);
+            } else if (ticket.isAvailable()) {
+                ticket.setAvailable(false);
+                ticket.setCustomerReference(customerId);
+                mutableEntry.setValue(ticket);
+                results.add(BookTicketResult.TICKET_BOOKED);
+            } else {
+                results.add(BookTicketResult.TICKET_NOT_AVAILABLE);
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void writeBinary(BinaryWriter writer) throws BinaryObjectException {
+        writer.rawWriter().writeLongArray(customerIds);
+    }
+
+    @Override
+    public void readBinary(BinaryReader reader) throws BinaryObjectException {
+        customerIds = reader.rawReader().readLongArray();
+    }
+}
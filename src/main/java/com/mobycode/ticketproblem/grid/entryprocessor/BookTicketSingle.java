@@ -0,0 +1,55 @@
+package com.mobycode.ticketproblem.grid.entryprocessor;
+
+import com.mobycode.ticketproblem.model.BookTicketResult;
+import com.mobycode.ticketproblem.model.BookingResult;
+import com.mobycode.ticketproblem.model.Ticket;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ignite.binary.BinaryObjectException;
+import org.apache.ignite.binary.BinaryReader;
+import org.apache.ignite.binary.BinaryWriter;
+import org.apache.ignite.binary.Binarylizable;
+import org.apache.ignite.cache.CacheEntryProcessor;
+
+import javax.cache.processor.MutableEntry;
+
+/*
+    Entry processor booking one ticket for one customer.
+
+    A named class rather than a lambda so each invocation ships two raw longs instead of a serialized lambda
+ */
+@Slf4j
+public class BookTicketSingle implements CacheEntryProcessor<Long, Ticket, BookingResult>, Binarylizable {
+
+    private long ticketId;
+    private long customerId;
+
+    public BookTicketSingle(long ticketId, long customerId) {
+        this.ticketId = ticketId;
+        this.customerId = customerId;
+    }
+
+    @Override
+    public BookingResult process(MutableEntry<Long, Ticket> mutableEntry, Object... objects) {
+        Ticket ticket = mutableEntry.getValue();
+        if (ticket.isAvailable()) {
+            ticket.setAvailable(false);
+            ticket.setCustomerReference(customerId);
+            mutableEntry.setValue(ticket);
+            log.info("ticket booked successful - ticket id was: {}, customer id was: {}",ticketId,customerId);
+            return new BookingResult(ticketId, customerId, BookTicketResult.TICKET_BOOKED);
+        }
+        return new BookingResult(ticketId, customerId, BookTicketResult.TICKET_NOT_AVAILABLE);
+    }
+
+    @Override
+    public void writeBinary(BinaryWriter writer) throws BinaryObjectException {
+        writer.rawWriter().writeLong(ticketId);
+        writer.rawWriter().writeLong(customerId);
+    }
+
+    @Override
+    public void readBinary(BinaryReader reader) throws BinaryObjectException {
+        ticketId = reader.rawReader().readLong();
+        customerId = reader.rawReader().readLong();
+    }
+}
@@ -0,0 +1,55 @@
+package com.mobycode.ticketproblem.grid.entryprocessor;
+
+import com.mobycode.ticketproblem.model.SeatMap;
+import com.mobycode.ticketproblem.model.SectionKey;
+import org.apache.ignite.binary.BinaryObjectException;
+import org.apache.ignite.binary.BinaryReader;
+import org.apache.ignite.binary.BinaryWriter;
+import org.apache.ignite.binary.Binarylizable;
+import org.apache.ignite.cache.CacheEntryProcessor;
+
+import javax.cache.processor.MutableEntry;
+
+/*
+    Entry processor claiming the best available block of adjacent seats in a section for a customer - all of the
+    seats or none.
+
+    Returns the first seat of the block (row * seatsPerRow + seat), -1 if no row has room for the block, or null if
+    the section doesn't exist
+ */
+public class ClaimSeatBlock implements CacheEntryProcessor<SectionKey, SeatMap, Integer>, Binarylizable {
+
+    private int quantity;
+    private long customerId;
+
+    public ClaimSeatBlock(int quantity, long customerId) {
+        this.quantity = quantity;
+        this.customerId = customerId;
+    }
+
+    @Override
+    public Integer process(MutableEntry<SectionKey, SeatMap> mutableEntry, Object... objects) {
+        SeatMap seatMap = mutableEntry.getValue();
+        if (seatMap == null) {
+            return null;
+        }
+        int first = seatMap.findBestBlock(quantity);
+        if (first >= 0) {
+            seatMap.claim(first, quantity, customerId);
+            mutableEntry.setValue(seatMap);
+        }
+        return first;
+    }
+
+    @Override
+    public void writeBinary(BinaryWriter writer) throws BinaryObjectException {
+        writer.rawWriter().writeInt(quantity);
+        writer.rawWriter().writeLong(customerId);
+    }
+
+    @Override
+    public void readBinary(BinaryReader reader) throws BinaryObjectException {
+        quantity = reader.rawReader().readInt();
+        customerId = reader.rawReader().readLong();
+    }
+}
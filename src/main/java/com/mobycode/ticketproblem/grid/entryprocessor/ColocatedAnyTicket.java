@@ -0,0 +1,27 @@
+package com.mobycode.ticketproblem.grid.entryprocessor;
+
+import com.mobycode.ticketproblem.model.AnyTicketRequest;
+import com.mobycode.ticketproblem.model.BookingResult;
+import org.apache.ignite.lang.IgniteCallable;
+import org.apache.ignite.resources.SpringResource;
+
+/*
+    A booking of any ticket passed (with affinityCall) to a node that still has free tickets of the event in its
+    primary partitions - it books from those and goes no further
+ */
+public class ColocatedAnyTicket implements IgniteCallable<BookingResult> {
+
+    private final AnyTicketRequest anyTicketRequest;
+
+    @SpringResource(resourceName = "bookAnyTicket")
+    private transient BookAnyTicket bookAnyTicket;
+
+    public ColocatedAnyTicket(AnyTicketRequest anyTicketRequest) {
+        this.anyTicketRequest = anyTicketRequest;
+    }
+
+    @Override
+    public BookingResult call() {
+        return bookAnyTicket.bookHere(anyTicketRequest);
+    }
+}
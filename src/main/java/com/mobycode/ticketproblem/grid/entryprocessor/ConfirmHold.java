@@ -0,0 +1,50 @@
+package com.mobycode.ticketproblem.grid.entryprocessor;
+
+import com.mobycode.ticketproblem.model.BookTicketResult;
+import com.mobycode.ticketproblem.model.Ticket;
+import org.apache.ignite.binary.BinaryObjectException;
+import org.apache.ignite.binary.BinaryReader;
+import org.apache.ignite.binary.BinaryWriter;
+import org.apache.ignite.binary.Binarylizable;
+import org.apache.ignite.cache.CacheEntryProcessor;
+
+import javax.cache.processor.MutableEntry;
+
+/*
+    Entry processor turning a customer's hold into a booking.  A hold found past its expiry is put back on sale
+    there and then rather than waiting for the expiry sweep
+ */
+public class ConfirmHold implements CacheEntryProcessor<Long, Ticket, BookTicketResult>, Binarylizable {
+
+    private long customerId;
+
+    public ConfirmHold(long customerId) {
+        this.customerId = customerId;
+    }
+
+    @Override
+    public BookTicketResult process(MutableEntry<Long, Ticket> mutableEntry, Object... objects) {
+        Ticket ticket = mutableEntry.getValue();
+        if (ticket == null || !ticket.isHeldBy(customerId)) {
+            return BookTicketResult.HOLD_NOT_FOUND;
+        }
+        if (ticket.getHoldExpiresAt() <= System.currentTimeMillis()) {
+            ticket.makeAvailable();
+            mutableEntry.setValue(ticket);
+            return BookTicketResult.HOLD_EXPIRED;
+        }
+        ticket.setHoldExpiresAt(0);
+        mutableEntry.setValue(ticket);
+        return BookTicketResult.TICKET_BOOKED;
+    }
+
+    @Override
+    public void writeBinary(BinaryWriter writer) throws BinaryObjectException {
+        writer.rawWriter().writeLong(customerId);
+    }
+
+    @Override
+    public void readBinary(BinaryReader reader) throws BinaryObjectException {
+        customerId = reader.rawReader().readLong();
+    }
+}
@@ -0,0 +1,38 @@
+package com.mobycode.ticketproblem.grid.entryprocessor;
+
+import com.mobycode.ticketproblem.model.Ticket;
+import org.apache.ignite.binary.BinaryObjectException;
+import org.apache.ignite.binary.BinaryReader;
+import org.apache.ignite.binary.BinaryWriter;
+import org.apache.ignite.binary.Binarylizable;
+import org.apache.ignite.cache.CacheEntryProcessor;
+
+import javax.cache.processor.MutableEntry;
+
+/*
+    Entry processor putting a ticket back on sale if it is held past its expiry - a ticket whose hold was confirmed,
+    released or extended in the meantime is left alone, so expiry timers never need cancelling
+ */
+public class ExpireHold implements CacheEntryProcessor<Long, Ticket, Boolean>, Binarylizable {
+
+    @Override
+    public Boolean process(MutableEntry<Long, Ticket> mutableEntry, Object... objects) {
+        Ticket ticket = mutableEntry.getValue();
+        if (ticket == null || !ticket.isHeld() || ticket.getHoldExpiresAt() > System.currentTimeMillis()) {
+            return false;
+        }
+        ticket.makeAvailable();
+        mutableEntry.setValue(ticket);
+        return true;
+    }
+
+    @Override
+    public void writeBinary(BinaryWriter writer) throws BinaryObjectException {
+        //no state - every expiry is the same
+    }
+
+    @Override
+    public void readBinary(BinaryReader reader) throws BinaryObjectException {
+        //no state - every expiry is the same
+    }
+}
@@ -0,0 +1,44 @@
+package com.mobycode.ticketproblem.grid.entryprocessor;
+
+import com.mobycode.ticketproblem.model.Ticket;
+import org.apache.ignite.binary.BinaryObjectException;
+import org.apache.ignite.binary.BinaryReader;
+import org.apache.ignite.binary.BinaryWriter;
+import org.apache.ignite.binary.Binarylizable;
+import org.apache.ignite.cache.CacheEntryProcessor;
+
+import javax.cache.processor.MutableEntry;
+
+/*
+    Entry processor undoing a booking (or hold) the customer turned out to have no room for - the ticket goes back
+    on sale unless it has stopped being the customer's in the meantime
+ */
+public class GiveTicketBack implements CacheEntryProcessor<Long, Ticket, Boolean>, Binarylizable {
+
+    private long customerId;
+
+    public GiveTicketBack(long customerId) {
+        this.customerId = customerId;
+    }
+
+    @Override
+    public Boolean process(MutableEntry<Long, Ticket> mutableEntry, Object... objects) {
+        Ticket ticket = mutableEntry.getValue();
+        if (ticket == null || ticket.isAvailable() || ticket.getCustomerReference() != customerId) {
+            return false;
+        }
+        ticket.makeAvailable();
+        mutableEntry.setValue(ticket);
+        return true;
+    }
+
+    @Override
+    public void writeBinary(BinaryWriter writer) throws BinaryObjectException {
+        writer.rawWriter().writeLong(customerId);
+    }
+
+    @Override
+    public void readBinary(BinaryReader reader) throws BinaryObjectException {
+        customerId = reader.rawReader().readLong();
+    }
+}
@@ -0,0 +1,53 @@
+package com.mobycode.ticketproblem.grid.entryprocessor;
+
+import com.mobycode.ticketproblem.model.BookTicketResult;
+import com.mobycode.ticketproblem.model.Ticket;
+import org.apache.ignite.binary.BinaryObjectException;
+import org.apache.ignite.binary.BinaryReader;
+import org.apache.ignite.binary.BinaryWriter;
+import org.apache.ignite.binary.Binarylizable;
+import org.apache.ignite.cache.CacheEntryProcessor;
+
+import javax.cache.processor.MutableEntry;
+
+/*
+    Entry processor holding an available ticket for a customer's checkout - the ticket is unavailable to everyone
+    else until the hold is confirmed, released or expires.  Holding again for the same customer extends the hold.
+
+    The expiry time is taken from the clock of the ticket's primary node, the one that checks it
+ */
+public class HoldTicket implements CacheEntryProcessor<Long, Ticket, BookTicketResult>, Binarylizable {
+
+    private long customerId;
+    private long ttlMillis;
+
+    public HoldTicket(long customerId, long ttlMillis) {
+        this.customerId = customerId;
+        this.ttlMillis = ttlMillis;
+    }
+
+    @Override
+    public BookTicketResult process(MutableEntry<Long, Ticket> mutableEntry, Object... objects) {
+        Ticket ticket = mutableEntry.getValue();
+        if (ticket == null || !(ticket.isAvailable() || ticket.isHeldBy(customerId))) {
+            return BookTicketResult.TICKET_NOT_AVAILABLE;
+        }
+        ticket.setAvailable(false);
+        ticket.setCustomerReference(customerId);
+        ticket.setHoldExpiresAt(System.currentTimeMillis() + ttlMillis);
+        mutableEntry.setValue(ticket);
+        return BookTicketResult.TICKET_HELD;
+    }
+
+    @Override
+    public void writeBinary(BinaryWriter writer) throws BinaryObjectException {
+        writer.rawWriter().writeLong(customerId);
+        writer.rawWriter().writeLong(ttlMillis);
+    }
+
+    @Override
+    public void readBinary(BinaryReader reader) throws BinaryObjectException {
+        customerId = reader.rawReader().readLong();
+        ttlMillis = reader.rawReader().readLong();
+    }
+}
@@ -0,0 +1,44 @@
+package com.mobycode.ticketproblem.grid.entryprocessor;
+
+import com.mobycode.ticketproblem.model.BookTicketResult;
+import com.mobycode.ticketproblem.model.Ticket;
+import org.apache.ignite.binary.BinaryObjectException;
+import org.apache.ignite.binary.BinaryReader;
+import org.apache.ignite.binary.BinaryWriter;
+import org.apache.ignite.binary.Binarylizable;
+import org.apache.ignite.cache.CacheEntryProcessor;
+
+import javax.cache.processor.MutableEntry;
+
+/*
+    Entry processor putting a ticket a customer holds back on sale (an abandoned checkout)
+ */
+public class ReleaseHold implements CacheEntryProcessor<Long, Ticket, BookTicketResult>, Binarylizable {
+
+    private long customerId;
+
+    public ReleaseHold(long customerId) {
+        this.customerId = customerId;
+    }
+
+    @Override
+    public BookTicketResult process(MutableEntry<Long, Ticket> mutableEntry, Object... objects) {
+        Ticket ticket = mutableEntry.getValue();
+        if (ticket == null || !ticket.isHeldBy(customerId)) {
+            return BookTicketResult.HOLD_NOT_FOUND;
+        }
+        ticket.makeAvailable();
+        mutableEntry.setValue(ticket);
+        return BookTicketResult.HOLD_RELEASED;
+    }
+
+    @Override
+    public void writeBinary(BinaryWriter writer) throws BinaryObjectException {
+        writer.rawWriter().writeLong(customerId);
+    }
+
+    @Override
+    public void readBinary(BinaryReader reader) throws BinaryObjectException {
+        customerId = reader.rawReader().readLong();
+    }
+}
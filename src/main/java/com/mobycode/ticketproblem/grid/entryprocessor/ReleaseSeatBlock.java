@@ -0,0 +1,52 @@
+package com.mobycode.ticketproblem.grid.entryprocessor;
+
+import com.mobycode.ticketproblem.model.SeatMap;
+import com.mobycode.ticketproblem.model.SectionKey;
+import org.apache.ignite.binary.BinaryObjectException;
+import org.apache.ignite.binary.BinaryReader;
+import org.apache.ignite.binary.BinaryWriter;
+import org.apache.ignite.binary.Binarylizable;
+import org.apache.ignite.cache.CacheEntryProcessor;
+
+import javax.cache.processor.MutableEntry;
+
+/*
+    Entry processor returning a block of booked seats to sale - false (and nothing changed) unless the customer
+    booked exactly that block, or if the section doesn't exist
+ */
+public class ReleaseSeatBlock implements CacheEntryProcessor<SectionKey, SeatMap, Boolean>, Binarylizable {
+
+    private int first;
+    private int quantity;
+    private long customerId;
+
+    public ReleaseSeatBlock(int first, int quantity, long customerId) {
+        this.first = first;
+        this.quantity = quantity;
+        this.customerId = customerId;
+    }
+
+    @Override
+    public Boolean process(MutableEntry<SectionKey, SeatMap> mutableEntry, Object... objects) {
+        SeatMap seatMap = mutableEntry.getValue();
+        if (seatMap == null || !seatMap.release(first, quantity, customerId)) {
+            return false;
+        }
+        mutableEntry.setValue(seatMap);
+        return true;
+    }
+
+    @Override
+    public void writeBinary(BinaryWriter writer) throws BinaryObjectException {
+        writer.rawWriter().writeInt(first);
+        writer.rawWriter().writeInt(quantity);
+        writer.rawWriter().writeLong(customerId);
+    }
+
+    @Override
+    public void readBinary(BinaryReader reader) throws BinaryObjectException {
+        first = reader.rawReader().readInt();
+        quantity = reader.rawReader().readInt();
+        customerId = reader.rawReader().readLong();
+    }
+}
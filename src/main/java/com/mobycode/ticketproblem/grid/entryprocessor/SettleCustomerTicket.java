@@ -0,0 +1,72 @@
+package com.mobycode.ticketproblem.grid.entryprocessor;
+
+import com.mobycode.ticketproblem.model.CustomerTickets;
+import org.apache.ignite.binary.BinaryObjectException;
+import org.apache.ignite.binary.BinaryReader;
+import org.apache.ignite.binary.BinaryWriter;
+import org.apache.ignite.binary.Binarylizable;
+import org.apache.ignite.cache.CacheEntryProcessor;
+
+import javax.cache.processor.MutableEntry;
+
+/*
+    Entry processor on the customer bookings map adding a ticket the customer booked or holds - false, leaving the
+    customer's tickets as they are, when they already have maxTickets others (0 for no limit).  Also removes a
+    ticket the customer no longer has - cancelled, released or expired
+ */
+public class SettleCustomerTicket implements CacheEntryProcessor<Long, CustomerTickets, Boolean>, Binarylizable {
+
+    private long ticketId;
+    private int maxTickets;
+    private boolean remove;
+
+    private SettleCustomerTicket(long ticketId, int maxTickets, boolean remove) {
+        this.ticketId = ticketId;
+        this.maxTickets = maxTickets;
+        this.remove = remove;
+    }
+
+    public static SettleCustomerTicket booked(long ticketId, int maxTickets) {
+        return new SettleCustomerTicket(ticketId, maxTickets, false);
+    }
+
+    public static SettleCustomerTicket gone(long ticketId) {
+        return new SettleCustomerTicket(ticketId, 0, true);
+    }
+
+    @Override
+    public Boolean process(MutableEntry<Long, CustomerTickets> mutableEntry, Object... objects) {
+        if (!mutableEntry.exists() && remove) {
+            return true;
+        }
+        CustomerTickets customerTickets = mutableEntry.exists() ? mutableEntry.getValue() : new CustomerTickets(mutableEntry.getKey());
+        if (remove) {
+            customerTickets.remove(ticketId);
+        } else if (!customerTickets.contains(ticketId)) {
+            if (maxTickets > 0 && customerTickets.count() >= maxTickets) {
+                return false;
+            }
+            customerTickets.add(ticketId);
+        }
+        if (customerTickets.count() == 0) {
+            mutableEntry.remove();
+        } else {
+            mutableEntry.setValue(customerTickets);
+        }
+        return true;
+    }
+
+    @Override
+    public void writeBinary(BinaryWriter writer) throws BinaryObjectException {
+        writer.rawWriter().writeLong(ticketId);
+        writer.rawWriter().writeInt(maxTickets);
+        writer.rawWriter().writeBoolean(remove);
+    }
+
+    @Override
+    public void readBinary(BinaryReader reader) throws BinaryObjectException {
+        ticketId = reader.rawReader().readLong();
+        maxTickets = reader.rawReader().readInt();
+        remove = reader.rawReader().readBoolean();
+    }
+}
@@ -0,0 +1,52 @@
+package com.mobycode.ticketproblem.grid.entryprocessor;
+
+import com.mobycode.ticketproblem.model.PoolStripeKey;
+import org.apache.ignite.binary.BinaryObjectException;
+import org.apache.ignite.binary.BinaryReader;
+import org.apache.ignite.binary.BinaryWriter;
+import org.apache.ignite.binary.Binarylizable;
+import org.apache.ignite.cache.CacheEntryProcessor;
+
+import javax.cache.processor.MutableEntry;
+
+/*
+    Entry processor taking tickets from one stripe of a pool - returns how many were taken.
+
+    All or nothing takes either take the full amount or leave the stripe untouched, otherwise as many as are left
+    (up to the amount) are taken.  A stripe never goes below zero so a pool can't be oversold.
+ */
+public class TakeFromStripe implements CacheEntryProcessor<PoolStripeKey, Long, Long>, Binarylizable {
+
+    private long amount;
+    private boolean allOrNothing;
+
+    public TakeFromStripe(long amount, boolean allOrNothing) {
+        this.amount = amount;
+        this.allOrNothing = allOrNothing;
+    }
+
+    @Override
+    public Long process(MutableEntry<PoolStripeKey, Long> mutableEntry, Object... objects) {
+        Long remaining = mutableEntry.getValue();
+        if (remaining == null || remaining == 0) {
+            return 0L;
+        }
+        long taken = allOrNothing ? (remaining >= amount ? amount : 0) : Math.min(amount, remaining);
+        if (taken > 0) {
+            mutableEntry.setValue(remaining - taken);
+        }
+        return taken;
+    }
+
+    @Override
+    public void writeBinary(BinaryWriter writer) throws BinaryObjectException {
+        writer.rawWriter().writeLong(amount);
+        writer.rawWriter().writeBoolean(allOrNothing);
+    }
+
+    @Override
+    public void readBinary(BinaryReader reader) throws BinaryObjectException {
+        amount = reader.rawReader().readLong();
+        allOrNothing = reader.rawReader().readBoolean();
+    }
+}
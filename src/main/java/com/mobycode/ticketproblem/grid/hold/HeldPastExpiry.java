@@ -0,0 +1,21 @@
+package com.mobycode.ticketproblem.grid.hold;
+
+import com.mobycode.ticketproblem.model.Ticket;
+import org.apache.ignite.lang.IgniteBiPredicate;
+
+/*
+    Scan filter for tickets still held after their hold expired
+ */
+class HeldPastExpiry implements IgniteBiPredicate<Long, Ticket> {
+
+    private final long nowMillis;
+
+    HeldPastExpiry(long nowMillis) {
+        this.nowMillis = nowMillis;
+    }
+
+    @Override
+    public boolean apply(Long ticketId, Ticket ticket) {
+        return ticket.isHeld() && ticket.getHoldExpiresAt() <= nowMillis;
+    }
+}
@@ -0,0 +1,108 @@
+package com.mobycode.ticketproblem.grid.hold;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/*
+    Hashed timer wheel of hold expiry times.
+
+    A hold is dropped into the slot of the tick its expiry falls in - O(1), and nothing to cancel when the hold is
+    confirmed or released (ExpireHold then finds nothing to do).  Each tick only looks at its own slot, so millions
+    of holds cost a few array entries each rather than a timer or a cache expiry event apiece.  A hold further off
+    than one turn of the wheel stays in its slot until a later turn reaches its expiry time.
+ */
+class HoldTimerWheel {
+
+    private final long tickMillis;
+    private final Slot[] slots;
+    private final int mask;
+
+    //only moved by advance - read when scheduling so a hold is never put in a slot that has already been passed
+    private volatile long currentTick;
+
+    HoldTimerWheel(long tickMillis, int slotCount, long nowMillis) {
+        if (Integer.bitCount(slotCount) != 1) {
+            throw new IllegalArgumentException("The number of timer wheel slots must be a power of two, not " + slotCount);
+        }
+        this.tickMillis = tickMillis;
+        this.slots = new Slot[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = slotCount - 1;
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    void schedule(long ticketId, long expiresAtMillis) {
+        //rounded up so the slot comes round no earlier than the expiry time
+        long tick = Math.max((expiresAtMillis + tickMillis - 1) / tickMillis, currentTick + 1);
+        slots[(int) (tick & mask)].add(ticketId, expiresAtMillis);
+    }
+
+    /*
+        Turn the wheel up to now, handing each ticket whose hold has expired to expired.  Called from one thread
+     */
+    void advance(long nowMillis, LongConsumer expired) {
+        long nowTick = nowMillis / tickMillis;
+        //after a long pause one turn visits every slot
+        for (long tick = Math.max(currentTick + 1, nowTick - mask); tick <= nowTick; tick++) {
+            slots[(int) (tick & mask)].expire(nowMillis, expired);
+        }
+        if (nowTick > currentTick) {
+            currentTick = nowTick;
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Slot slot : slots) {
+            size += slot.size();
+        }
+        return size;
+    }
+
+    /*
+        Ticket ids and expiry times in parallel primitive arrays - 16 bytes a hold
+     */
+    private static class Slot {
+
+        private static final int INITIAL_CAPACITY = 8;
+
+        private long[] ticketIds = new long[INITIAL_CAPACITY];
+        private long[] expiresAt = new long[INITIAL_CAPACITY];
+        private int size;
+
+        synchronized void add(long ticketId, long expiresAtMillis) {
+            if (size == ticketIds.length) {
+                ticketIds = Arrays.copyOf(ticketIds, size * 2);
+                expiresAt = Arrays.copyOf(expiresAt, size * 2);
+            }
+            ticketIds[size] = ticketId;
+            expiresAt[size] = expiresAtMillis;
+            size++;
+        }
+
+        synchronized void expire(long nowMillis, LongConsumer expired) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (expiresAt[i] <= nowMillis) {
+                    expired.accept(ticketIds[i]);
+                } else {
+                    ticketIds[kept] = ticketIds[i];
+                    expiresAt[kept] = expiresAt[i];
+                    kept++;
+                }
+            }
+            size = kept;
+            //give back what an on sale's worth of holds grew the slot to
+            if (size == 0 && ticketIds.length > INITIAL_CAPACITY) {
+                ticketIds = new long[INITIAL_CAPACITY];
+                expiresAt = new long[INITIAL_CAPACITY];
+            }
+        }
+
+        synchronized int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.mobycode.ticketproblem.grid.hold;
+
+import com.mobycode.ticketproblem.grid.GridDataNames;
+import com.mobycode.ticketproblem.grid.entryprocessor.ConfirmHold;
+import com.mobycode.ticketproblem.grid.entryprocessor.ExpireHold;
+import com.mobycode.ticketproblem.grid.entryprocessor.HoldTicket;
+import com.mobycode.ticketproblem.grid.entryprocessor.ReleaseHold;
+import com.mobycode.ticketproblem.grid.journal.BookingJournal;
+import com.mobycode.ticketproblem.model.BookTicketResult;
+import com.mobycode.ticketproblem.model.BookingRequest;
+import com.mobycode.ticketproblem.model.BookingResult;
+import com.mobycode.ticketproblem.model.Ticket;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.cache.query.QueryCursor;
+import org.apache.ignite.cache.query.ScanQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.cache.Cache;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorResult;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Two phase bookings - a ticket is held while the customer pays, then the hold is confirmed (booked) or released.
+
+    Holds that are neither expire.  Each node keeps the holds it placed on a timer wheel turned every tick, and the
+    tickets whose holds expired in a tick are put back on sale with one invokeAll.  Holds placed by a node that has
+    since left are caught by a slower sweep of the node's primary partitions for tickets held past their expiry - on
+    its own thread, so a long sweep never holds up the wheel.
+
+    Released and expired holds are journaled as released, so a replay never brings back an earlier booking of the
+    ticket
+ */
+@Slf4j
+@Component
+public class TicketHolds {
+
+    private static final int EXPIRE_BATCH_SIZE = 1000;
+    private static final ExpireHold EXPIRE_HOLD = new ExpireHold();
+
+    private final Ignite ignite;
+    private final IgniteCache<Long, Ticket> ticketMap;
+    private final BookingJournal bookingJournal;
+
+    @Value("${ticketproblem.hold.ttl-seconds:600}")
+    private long defaultTtlSeconds;
+
+    @Value("${ticketproblem.hold.tick-millis:100}")
+    private long tickMillis;
+
+    //a turn of the wheel is tick-millis x wheel-slots - best kept above the usual hold ttl
+    @Value("${ticketproblem.hold.wheel-slots:8192}")
+    private int wheelSlots;
+
+    @Value("${ticketproblem.hold.sweep-interval-seconds:60}")
+    private long sweepIntervalSeconds;
+
+    private HoldTimerWheel wheel;
+    private ScheduledExecutorService expiry;
+    private ScheduledExecutorService sweeper;
+
+    @Autowired
+    public TicketHolds(Ignite ignite, IgniteCache<Long, Ticket> ticketMap, BookingJournal bookingJournal) {
+        this.ignite = ignite;
+        this.ticketMap = ticketMap;
+        this.bookingJournal = bookingJournal;
+    }
+
+    @PostConstruct
+    public void start() {
+        wheel = new HoldTimerWheel(tickMillis, wheelSlots, System.currentTimeMillis());
+        expiry = daemon("hold-expiry");
+        expiry.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        sweeper = daemon("hold-sweep");
+        sweeper.scheduleWithFixedDelay(this::sweep, sweepIntervalSeconds, sweepIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (expiry != null) {
+            expiry.shutdownNow();
+        }
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    private static ScheduledExecutorService daemon(String name) {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /*
+        ttlSeconds of null holds for the configured default
+     */
+    public BookingResult hold(BookingRequest bookingRequest, Long ttlSeconds) {
+        long ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds == null ? defaultTtlSeconds : ttlSeconds);
+        BookTicketResult result = invoke(bookingRequest, new HoldTicket(bookingRequest.getCustomerId(), ttlMillis));
+        if (result == BookTicketResult.TICKET_HELD) {
+            //a tick late so the primary's clock has certainly passed the expiry when ExpireHold runs
+            wheel.schedule(bookingRequest.getTicketId(), System.currentTimeMillis() + ttlMillis + tickMillis);
+        }
+        return new BookingResult(bookingRequest, result);
+    }
+
+    public BookingResult confirm(BookingRequest bookingRequest) {
+        return new BookingResult(bookingRequest, invoke(bookingRequest, new ConfirmHold(bookingRequest.getCustomerId())));
+    }
+
+    /*
+        Answered once the release is journaled, like a booking
+     */
+    public BookingResult release(BookingRequest bookingRequest) {
+        BookTicketResult result = invoke(bookingRequest, new ReleaseHold(bookingRequest.getCustomerId()));
+        if (result == BookTicketResult.HOLD_RELEASED) {
+            try {
+                bookingJournal.released(bookingRequest.getTicketId()).join();
+            } catch (Exception e) {
+                //the ticket is back on sale regardless
+                log.error("Failed to journal the release of ticket id:{}", bookingRequest.getTicketId(), e);
+            }
+        }
+        return new BookingResult(bookingRequest, result);
+    }
+
+    public int getScheduledExpiries() {
+        return wheel.size();
+    }
+
+    private BookTicketResult invoke(BookingRequest bookingRequest, EntryProcessor<Long, Ticket, BookTicketResult> processor) {
+        try {
+            return ticketMap.invoke(bookingRequest.getTicketId(), processor);
+        } catch (Exception e) {
+            log.error("An error occurred changing the hold on ticket id:{} for customer id:{}",
+                    bookingRequest.getTicketId(), bookingRequest.getCustomerId(), e);
+            return BookTicketResult.BOOKING_ERROR;
+        }
+    }
+
+    private void tick() {
+        try {
+            Set<Long> expired = new TreeSet<>();
+            wheel.advance(System.currentTimeMillis(), expired::add);
+            expire(expired);
+        } catch (Exception e) {
+            //keep the wheel turning - the sweep picks up whatever this tick missed
+            log.error("Failed to expire holds", e);
+        }
+    }
+
+    /*
+        Partition by partition so no single scan holds the tickets of every partition at once
+     */
+    private void sweep() {
+        try {
+            int[] partitions = ignite.affinity(GridDataNames.MAP_TICKET.getName()).primaryPartitions(ignite.cluster().localNode());
+            for (int partition : partitions) {
+                Set<Long> expired = new TreeSet<>();
+                ScanQuery<Long, Ticket> query = new ScanQuery<>(partition, new HeldPastExpiry(System.currentTimeMillis()));
+                query.setLocal(true);
+                try (QueryCursor<Cache.Entry<Long, Ticket>> cursor = ticketMap.query(query)) {
+                    cursor.forEach(entry -> expired.add(entry.getKey()));
+                }
+                expire(expired);
+            }
+        } catch (Exception e) {
+            log.error("Failed to sweep for expired holds", e);
+        }
+    }
+
+    /*
+        ids in order (TreeSet) so concurrent invokeAlls take entry locks in the same order
+     */
+    private void expire(Set<Long> ticketIds) {
+        Set<Long> batch = new TreeSet<>();
+        for (Long ticketId : ticketIds) {
+            batch.add(ticketId);
+            if (batch.size() == EXPIRE_BATCH_SIZE) {
+                expireBatch(batch);
+                batch = new TreeSet<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            expireBatch(batch);
+        }
+    }
+
+    private void expireBatch(Set<Long> batch) {
+        Map<Long, EntryProcessorResult<Boolean>> results = ticketMap.invokeAll(batch, EXPIRE_HOLD);
+        results.forEach((ticketId, result) -> {
+            if (Boolean.TRUE.equals(result.get())) {
+                bookingJournal.released(ticketId).whenComplete((durable, throwable) -> {
+                    if (throwable != null) {
+                        log.error("Failed to journal the expiry of the hold on ticket id:{}", ticketId, throwable);
+                    }
+                });
+            }
+        });
+    }
+}
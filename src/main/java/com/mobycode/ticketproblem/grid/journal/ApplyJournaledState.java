@@ -0,0 +1,29 @@
+package com.mobycode.ticketproblem.grid.journal;
+
+import com.mobycode.ticketproblem.model.Ticket;
+import org.apache.ignite.cache.CacheEntryProcessor;
+
+import javax.cache.processor.MutableEntry;
+
+/*
+    Stream receiver processor applying a replayed booking state to a ticket - the rest of the ticket (e.g. its event)
+    is left as it was loaded.  The streamed ticket carries the state
+ */
+public class ApplyJournaledState implements CacheEntryProcessor<Long, Ticket, Object> {
+
+    @Override
+    public Object process(MutableEntry<Long, Ticket> mutableEntry, Object... objects) {
+        Ticket state = (Ticket) objects[0];
+        Ticket ticket = mutableEntry.getValue();
+        if (ticket == null) {
+            mutableEntry.setValue(state);
+        } else {
+            ticket.setAvailable(state.isAvailable());
+            ticket.setCustomerReference(state.getCustomerReference());
+            //journaled states are final - a confirmed or released hold
+            ticket.setHoldExpiresAt(0);
+            mutableEntry.setValue(ticket);
+        }
+        return null;
+    }
+}
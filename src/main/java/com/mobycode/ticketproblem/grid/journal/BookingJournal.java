@@ -0,0 +1,294 @@
+package com.mobycode.ticketproblem.grid.journal;
+
+import com.mobycode.ticketproblem.grid.GridDataNames;
+import com.mobycode.ticketproblem.model.Ticket;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteDataStreamer;
+import org.apache.ignite.stream.StreamTransformer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.*;
+
+/*
+    Node local, append only commit log of ticket state changes.
+
+    Fixed size binary records are written to memory mapped segment files.  One flusher forces the mapped pages to
+    disk every flush interval and completes every append it covered (group commit) - so a booking waits at most one
+    flush interval to be durable and the disk sees one fsync per interval however many bookings are made.
+
+    On startup the journal is replayed into the ticket map with a data streamer (booking state only - tickets keep
+    what the store loaded for them otherwise) - this happens while the Spring
+    context is being built, before the camel routes are started and accept traffic.
+
+    Replay then checkpoints the journal: the latest state of each ticket is written to fresh segments and the
+    segments replayed are deleted, so the next start replays one record per ticket plus whatever was booked since
+    rather than every booking ever made.  The old segments only go once the checkpoint is forced to disk - a crash
+    in between leaves both, and replaying both still ends on the latest states.
+ */
+@Slf4j
+@Component
+public class BookingJournal {
+
+    static final int RECORD_SIZE = 32;
+    static final int BOOKED = 1;
+    static final int RELEASED = 2;
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    @Autowired
+    private Ignite ignite;
+
+    @Value("${ticketproblem.journal.enabled:false}")
+    private boolean enabled;
+
+    @Value("${ticketproblem.journal.directory:./data/journal}")
+    private String directory;
+
+    //records per segment file
+    @Value("${ticketproblem.journal.segment-records:1048576}")
+    private int segmentRecords;
+
+    @Value("${ticketproblem.journal.flush-interval-millis:2}")
+    private long flushIntervalMillis;
+
+    private final Queue<PendingFlush> pendingFlushes = new ConcurrentLinkedQueue<>();
+    private ScheduledExecutorService flusher;
+
+    private long segmentIndex;
+    private RandomAccessFile segmentFile;
+    private MappedByteBuffer segment;
+    //records written to the current segment
+    private int segmentPosition;
+    //records written (and forced) over the life of this journal instance
+    private long written;
+    private volatile long forced;
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        File journalDirectory = new File(directory);
+        if (!journalDirectory.isDirectory() && !journalDirectory.mkdirs()) {
+            throw new IOException("Unable to create journal directory " + journalDirectory.getAbsolutePath());
+        }
+        replay(journalDirectory);
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "booking-journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (flusher != null) {
+            flusher.shutdown();
+            flush();
+            synchronized (this) {
+                segmentFile.close();
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /*
+        The returned future completes once the booking is on disk
+     */
+    public CompletableFuture<Void> booked(long ticketId, long customerId) {
+        return append(BOOKED, ticketId, customerId);
+    }
+
+    public CompletableFuture<Void> released(long ticketId) {
+        return append(RELEASED, ticketId, Ticket.NO_CUSTOMER);
+    }
+
+    private CompletableFuture<Void> append(int type, long ticketId, long customerId) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+        PendingFlush pendingFlush;
+        try {
+            synchronized (this) {
+                write(type, ticketId, customerId);
+                //queued in position order so a flush can stop at the first append it didn't cover
+                pendingFlush = new PendingFlush(++written);
+                pendingFlushes.add(pendingFlush);
+            }
+        } catch (IOException e) {
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        return pendingFlush.durable;
+    }
+
+    /*
+        Group commit - one force for everything written since the last one
+     */
+    private void flush() {
+        long toForce;
+        synchronized (this) {
+            toForce = written;
+            if (toForce > forced) {
+                segment.force();
+            }
+        }
+        forced = toForce;
+        PendingFlush pendingFlush;
+        while ((pendingFlush = pendingFlushes.peek()) != null && pendingFlush.position <= toForce) {
+            pendingFlushes.poll();
+            pendingFlush.durable.complete(null);
+        }
+    }
+
+    //callers hold the monitor
+    private void write(int type, long ticketId, long customerId) throws IOException {
+        if (segmentPosition == segmentRecords) {
+            roll();
+        }
+        int offset = segmentPosition * RECORD_SIZE;
+        long timestamp = System.currentTimeMillis();
+        segment.putLong(offset, ticketId);
+        segment.putLong(offset + 8, customerId);
+        segment.putLong(offset + 16, timestamp);
+        segment.putInt(offset + 28, checksum(type, ticketId, customerId, timestamp));
+        //the type goes in last - a record with no type marks the end of the journal
+        segment.putInt(offset + 24, type);
+        segmentPosition++;
+    }
+
+    //callers hold the monitor
+    private void roll() throws IOException {
+        segment.force();
+        segmentFile.close();
+        open(new File(directory), segmentIndex + 1);
+        segmentPosition = 0;
+    }
+
+    private void open(File journalDirectory, long index) throws IOException {
+        segmentIndex = index;
+        segmentFile = new RandomAccessFile(new File(journalDirectory, segmentName(index)), "rw");
+        segment = segmentFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, (long) segmentRecords * RECORD_SIZE);
+    }
+
+    /*
+        Sequentially scan every segment, keep the latest state of each ticket and stream those into the grid.
+        Appending carries on after the checkpoint, or after the last good record of the last segment when every
+        record replayed was a ticket's latest state
+     */
+    private void replay(File journalDirectory) throws IOException {
+        long start = System.currentTimeMillis();
+        File[] segmentFiles = journalDirectory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (segmentFiles == null) {
+            segmentFiles = new File[0];
+        }
+        Arrays.sort(segmentFiles);
+        //ticket id -> customer reference of the latest state (NO_CUSTOMER when released)
+        Map<Long, Long> latest = new HashMap<>();
+        long records = 0;
+        long lastIndex = 0;
+        int lastPosition = 0;
+        for (File file : segmentFiles) {
+            lastIndex = segmentIndex(file);
+            open(journalDirectory, lastIndex);
+            lastPosition = 0;
+            while (lastPosition < segmentRecords) {
+                int offset = lastPosition * RECORD_SIZE;
+                int type = segment.getInt(offset + 24);
+                long ticketId = segment.getLong(offset);
+                long customerId = segment.getLong(offset + 8);
+                long timestamp = segment.getLong(offset + 16);
+                if (type == 0 || segment.getInt(offset + 28) != checksum(type, ticketId, customerId, timestamp)) {
+                    break;
+                }
+                latest.put(ticketId, type == BOOKED ? customerId : Ticket.NO_CUSTOMER);
+                lastPosition++;
+                records++;
+            }
+            segmentFile.close();
+        }
+        try (IgniteDataStreamer<Long, Ticket> streamer = ignite.dataStreamer(GridDataNames.MAP_TICKET.getName())) {
+            streamer.allowOverwrite(true);
+            streamer.receiver(StreamTransformer.from(new ApplyJournaledState()));
+            latest.forEach((ticketId, customerReference) -> {
+                Ticket ticket = new Ticket(ticketId);
+                if (customerReference != Ticket.NO_CUSTOMER) {
+                    ticket.setAvailable(false);
+                    ticket.setCustomerReference(customerReference);
+                }
+                streamer.addData(ticketId, ticket);
+            });
+        }
+        log.info("Replayed {} journal records ({} tickets) in {} ms", records, latest.size(), System.currentTimeMillis() - start);
+        if (records > latest.size()) {
+            checkpoint(journalDirectory, segmentFiles, lastIndex + 1, latest);
+        } else {
+            open(journalDirectory, lastIndex);
+            segmentPosition = lastPosition;
+        }
+    }
+
+    /*
+        Write the latest states from segment firstIndex on, then delete the segments they were replayed from
+     */
+    private synchronized void checkpoint(File journalDirectory, File[] replayed, long firstIndex, Map<Long, Long> latest) throws IOException {
+        long start = System.currentTimeMillis();
+        open(journalDirectory, firstIndex);
+        segmentPosition = 0;
+        for (Map.Entry<Long, Long> state : latest.entrySet()) {
+            long customerReference = state.getValue();
+            write(customerReference == Ticket.NO_CUSTOMER ? RELEASED : BOOKED, state.getKey(), customerReference);
+        }
+        segment.force();
+        for (File file : replayed) {
+            if (!file.delete()) {
+                log.warn("Unable to delete journal segment {} - it will be replayed again before the checkpoint", file.getAbsolutePath());
+            }
+        }
+        log.info("Checkpointed the journal - {} segments replaced by {} records in {} ms",
+                replayed.length, latest.size(), System.currentTimeMillis() - start);
+    }
+
+    private static String segmentName(long index) {
+        return String.format("%s%012d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX);
+    }
+
+    private static long segmentIndex(File file) {
+        String name = file.getName();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    static int checksum(int type, long ticketId, long customerId, long timestamp) {
+        long hash = type;
+        hash = hash * 31 + ticketId;
+        hash = hash * 31 + customerId;
+        hash = hash * 31 + timestamp;
+        return (int) (hash ^ (hash >>> 32)) | 1;
+    }
+
+    private static class PendingFlush {
+        private final long position;
+        private final CompletableFuture<Void> durable = new CompletableFuture<>();
+
+        private PendingFlush(long position) {
+            this.position = position;
+        }
+    }
+}
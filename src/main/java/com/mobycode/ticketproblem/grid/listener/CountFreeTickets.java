@@ -0,0 +1,43 @@
+package com.mobycode.ticketproblem.grid.listener;
+
+import com.mobycode.ticketproblem.grid.GridDataNames;
+import com.mobycode.ticketproblem.model.Ticket;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.cache.affinity.Affinity;
+import org.apache.ignite.cache.query.QueryCursor;
+import org.apache.ignite.cache.query.ScanQuery;
+import org.apache.ignite.lang.IgniteCallable;
+import org.apache.ignite.resources.IgniteInstanceResource;
+
+import javax.cache.Cache;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+    Broadcast to the server nodes when a FreeTicketIndex starts - each counts the free tickets of its own primary
+    partitions with local scans and sends back only the counts (event id -> free tickets per partition), never the
+    tickets
+ */
+public class CountFreeTickets implements IgniteCallable<Map<Long, long[]>> {
+
+    @IgniteInstanceResource
+    private transient Ignite ignite;
+
+    @Override
+    public Map<Long, long[]> call() {
+        IgniteCache<Long, Ticket> ticketMap = ignite.cache(GridDataNames.MAP_TICKET.getName());
+        Affinity<Long> affinity = ignite.affinity(GridDataNames.MAP_TICKET.getName());
+        Map<Long, long[]> counts = new HashMap<>();
+        for (int partition : affinity.primaryPartitions(ignite.cluster().localNode())) {
+            ScanQuery<Long, Ticket> query = new ScanQuery<>(partition, (ticketId, ticket) -> ticket.isAvailable());
+            query.setLocal(true);
+            try (QueryCursor<Cache.Entry<Long, Ticket>> tickets = ticketMap.query(query)) {
+                for (Cache.Entry<Long, Ticket> entry : tickets) {
+                    counts.computeIfAbsent(entry.getValue().getEventId(), eventId -> new long[affinity.partitions()])[partition]++;
+                }
+            }
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,128 @@
+package com.mobycode.ticketproblem.grid.listener;
+
+import com.mobycode.ticketproblem.model.Customer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.cache.query.ContinuousQuery;
+import org.apache.ignite.cache.query.QueryCursor;
+import org.apache.ignite.lang.IgniteFuture;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.cache.Cache;
+import javax.cache.event.CacheEntryEvent;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+    May a customer book?  Only customers in the customer map who aren't blocked.
+
+    Answered from a node local near cache of customer states (LongStateCache) so the check is an array read, not a
+    network hop.  A miss reads the customer map once (asynchronously) and caches the answer, unknown customers
+    included so a flood of bookings from a bad id doesn't turn into a flood of reads.  Every change to the customer
+    map reaches each node's cache through a continuous query and overwrites what it had - and bumps the slot's
+    version, so a lookup that started before the change (and may have read the old customer) is not cached over it.
+ */
+@Slf4j
+@Component
+@ManagedResource(objectName = "com.mobycode.ticketproblem:type=CustomerEligibility", description = "Customer near cache")
+public class CustomerEligibility {
+
+    private static final int ELIGIBLE = 1;
+    private static final int BLOCKED = 2;
+    private static final int UNKNOWN = 3;
+
+    private static final CompletableFuture<Boolean> YES = CompletableFuture.completedFuture(true);
+    private static final CompletableFuture<Boolean> NO = CompletableFuture.completedFuture(false);
+
+    private final IgniteCache<Long, Customer> customerMap;
+    private final IgniteCache<Long, Customer> asyncCustomerMap;
+
+    @Value("${ticketproblem.customer.validation.enabled:true}")
+    private boolean enabled;
+
+    //8 bytes a slot - a power of two
+    @Value("${ticketproblem.customer.near-cache.slots:1048576}")
+    private int slots;
+
+    private LongStateCache states;
+    private QueryCursor<Cache.Entry<Long, Customer>> cursor;
+    private final LongAdder misses = new LongAdder();
+
+    @Autowired
+    public CustomerEligibility(IgniteCache<Long, Customer> customerMap) {
+        this.customerMap = customerMap;
+        this.asyncCustomerMap = customerMap.withAsync();
+    }
+
+    @PostConstruct
+    public void start() {
+        states = new LongStateCache(slots);
+        ContinuousQuery<Long, Customer> query = new ContinuousQuery<>();
+        query.setLocalListener(events -> events.forEach(this::apply));
+        cursor = customerMap.query(query);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (cursor != null) {
+            cursor.close();
+        }
+    }
+
+    /*
+        Completed straight away on a near cache hit
+     */
+    public CompletableFuture<Boolean> isEligible(long customerId) {
+        if (!enabled) {
+            return YES;
+        }
+        //one read of the slot - the lookup on a miss is compared against the very version that missed
+        long slot = states.slot(customerId);
+        int state = LongStateCache.state(customerId, slot);
+        if (state != LongStateCache.MISSING) {
+            return state == ELIGIBLE ? YES : NO;
+        }
+        misses.increment();
+        CompletableFuture<Boolean> eligible = new CompletableFuture<>();
+        try {
+            asyncCustomerMap.get(customerId);
+            IgniteFuture<Customer> lookup = asyncCustomerMap.future();
+            lookup.listen(completed -> {
+                try {
+                    int looked = state(completed.get());
+                    states.putIfUnchanged(customerId, looked, slot);
+                    eligible.complete(looked == ELIGIBLE);
+                } catch (Exception e) {
+                    log.error("Failed to look up customer id:{}", customerId, e);
+                    eligible.complete(false);
+                }
+            });
+        } catch (Exception e) {
+            log.error("Failed to look up customer id:{}", customerId, e);
+            eligible.complete(false);
+        }
+        return eligible;
+    }
+
+    @ManagedAttribute(description = "Eligibility checks that had to read the customer map")
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private void apply(CacheEntryEvent<? extends Long, ? extends Customer> event) {
+        states.put(event.getKey(), state(event.getValue()));
+    }
+
+    private static int state(Customer customer) {
+        if (customer == null) {
+            return UNKNOWN;
+        }
+        return customer.isBlocked() ? BLOCKED : ELIGIBLE;
+    }
+}
@@ -0,0 +1,252 @@
+package com.mobycode.ticketproblem.grid.listener;
+
+import com.mobycode.ticketproblem.grid.GridDataNames;
+import com.mobycode.ticketproblem.model.AvailableTickets;
+import com.mobycode.ticketproblem.model.Ticket;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.cache.affinity.Affinity;
+import org.apache.ignite.cache.query.ContinuousQuery;
+import org.apache.ignite.cache.query.QueryCursor;
+import org.apache.ignite.cache.query.ScanQuery;
+import org.apache.ignite.cache.query.SqlFieldsQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.cache.Cache;
+import javax.cache.event.CacheEntryEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongConsumer;
+
+/*
+    Which of an event's tickets are still free.
+
+    Pages of free tickets come from SQL over the ticket map's (eventId, available) index, in ticket id order so a
+    page is a range scan of the index after the last id of the previous page.
+
+    Counts are kept on every node as a free count per event and partition - a count is a sum over the partitions,
+    whatever the number of tickets.  They are seeded when the node starts by the server nodes counting their own
+    primary partitions (CountFreeTickets) and kept up to date by a continuous query, started before the seed so no
+    change is missed - a change landing while the servers count may be counted twice, leaving the count that much
+    high until the tickets are booked.  Nothing per ticket is kept on the node.
+
+    The free tickets of one of the node's own partitions are read from the partition (a local scan) when asked for.
+    So that only partitions worth reading are read, each event has a bit per partition, set while it may still
+    have free tickets: cleared by a read that finds none, set again when a ticket of the partition comes free.  A
+    continuous query like the SoldOutRegistry's feeds those bits and tells change listeners the event id whenever
+    one of its tickets is booked or comes free (see AvailabilityFeed), and moves the counts.  IgniteCache.clear raises no events - remove
+    tickets (e.g. InventoryLoader.reloadEvent) to have listeners hear of them.
+ */
+@Slf4j
+@Component
+public class FreeTicketIndex {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private static final String FREE_TICKETS =
+            "select _key from Ticket where eventId = ? and available = true and _key > ? order by _key limit ?";
+
+    private final Ignite ignite;
+    private final IgniteCache<Long, Ticket> ticketMap;
+
+    //event id -> a bit per partition, set while the partition may have free tickets of the event
+    private final ConcurrentMap<Long, AtomicLongArray> mayHaveFree = new ConcurrentHashMap<>();
+
+    //event id -> free tickets per partition
+    private final ConcurrentMap<Long, AtomicLongArray> freeCounts = new ConcurrentHashMap<>();
+
+    //called on the continuous query's thread - must be quick
+    private final List<LongConsumer> changeListeners = new CopyOnWriteArrayList<>();
+
+    private Affinity<Long> affinity;
+    private QueryCursor<Cache.Entry<Long, Ticket>> cursor;
+
+    @Autowired
+    public FreeTicketIndex(Ignite ignite, IgniteCache<Long, Ticket> ticketMap) {
+        this.ignite = ignite;
+        this.ticketMap = ticketMap;
+    }
+
+    @PostConstruct
+    public void start() {
+        affinity = ignite.affinity(GridDataNames.MAP_TICKET.getName());
+        ContinuousQuery<Long, Ticket> query = new ContinuousQuery<>();
+        //only changes to whether a ticket is free - new tickets, removals and bookings / cancellations
+        query.setRemoteFilter(event -> event.getValue() == null
+                || event.getOldValue() == null
+                || event.getValue().isAvailable() != event.getOldValue().isAvailable());
+        query.setLocalListener(events -> events.forEach(this::apply));
+        cursor = ticketMap.query(query);
+        seedCounts();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (cursor != null) {
+            cursor.close();
+        }
+    }
+
+    public void addChangeListener(LongConsumer changeListener) {
+        changeListeners.add(changeListener);
+    }
+
+    public void removeChangeListener(LongConsumer changeListener) {
+        changeListeners.remove(changeListener);
+    }
+
+    public long freeCount(long eventId) {
+        AtomicLongArray counts = freeCounts.get(eventId);
+        if (counts == null) {
+            return 0;
+        }
+        long free = 0;
+        for (int partition = 0; partition < counts.length(); partition++) {
+            free += counts.get(partition);
+        }
+        return Math.max(0, free);
+    }
+
+    /*
+        Any one free ticket of an event - null when it has none
+     */
+    public Long anyFreeTicket(long eventId) {
+        List<Long> ticketIds = freeTicketIds(eventId, Long.MIN_VALUE, 1);
+        return ticketIds.isEmpty() ? null : ticketIds.get(0);
+    }
+
+    /*
+        The free ticket ids of an event in one of this node's partitions - read from the partition, so only for a
+        partition the node holds
+     */
+    public List<Long> freeTickets(long eventId, int partition) {
+        AtomicLongArray bits = bits(eventId);
+        //cleared first so a ticket coming free during the read sets it again
+        clear(bits, partition);
+        List<Long> ticketIds = new ArrayList<>();
+        ScanQuery<Long, Ticket> query = new ScanQuery<>(partition, (ticketId, ticket) -> ticket.getEventId() == eventId && ticket.isAvailable());
+        query.setLocal(true);
+        try (QueryCursor<Cache.Entry<Long, Ticket>> tickets = ticketMap.query(query)) {
+            tickets.forEach(entry -> ticketIds.add(entry.getKey()));
+        }
+        if (!ticketIds.isEmpty()) {
+            set(bits, partition);
+        }
+        return ticketIds;
+    }
+
+    /*
+        Whether a partition may hold free tickets of an event - true until a read of it has found none
+     */
+    public boolean mayHaveFreeTickets(long eventId, int partition) {
+        return isSet(bits(eventId), partition);
+    }
+
+    /*
+        Free tickets of an event with ids above after - at most limit of them (MAX_PAGE_SIZE at most).  Only the
+        first page (no after) carries the event's free count
+     */
+    public AvailableTickets page(Long eventId, Long after, Integer limit) {
+        int pageSize = limit == null ? MAX_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<Long> ticketIds = freeTicketIds(eventId, after == null ? Long.MIN_VALUE : after, pageSize);
+        Long nextAfter = ticketIds.size() == pageSize ? ticketIds.get(ticketIds.size() - 1) : null;
+        return new AvailableTickets(eventId, ticketIds, nextAfter, after == null ? freeCount(eventId) : null);
+    }
+
+    /*
+        The query's cursor is read a page at a time so a page never holds more than pageSize rows in memory
+     */
+    private List<Long> freeTicketIds(long eventId, long after, int pageSize) {
+        SqlFieldsQuery query = new SqlFieldsQuery(FREE_TICKETS).setArgs(eventId, after, pageSize);
+        query.setPageSize(pageSize);
+        List<Long> ticketIds = new ArrayList<>(pageSize);
+        try (QueryCursor<List<?>> rows = ticketMap.query(query)) {
+            rows.forEach(row -> ticketIds.add((Long) row.get(0)));
+        }
+        return ticketIds;
+    }
+
+    private void seedCounts() {
+        for (Map<Long, long[]> serverCounts : ignite.compute(ignite.cluster().forServers()).broadcast(new CountFreeTickets())) {
+            serverCounts.forEach((eventId, partitionCounts) -> {
+                AtomicLongArray counts = counts(eventId);
+                for (int partition = 0; partition < partitionCounts.length; partition++) {
+                    if (partitionCounts[partition] != 0) {
+                        counts.addAndGet(partition, partitionCounts[partition]);
+                    }
+                }
+            });
+        }
+    }
+
+    private void apply(CacheEntryEvent<? extends Long, ? extends Ticket> event) {
+        Ticket ticket = event.getValue();
+        Ticket oldTicket = event.getOldValue();
+        int partition = affinity.partition(event.getKey());
+        if (ticket == null) {
+            //removed - the event it belonged to is only known if the old value came with it
+            if (oldTicket != null) {
+                if (oldTicket.isAvailable()) {
+                    counts(oldTicket.getEventId()).decrementAndGet(partition);
+                }
+                changed(oldTicket.getEventId());
+            }
+            return;
+        }
+        if (ticket.isAvailable()) {
+            set(bits(ticket.getEventId()), partition);
+            counts(ticket.getEventId()).incrementAndGet(partition);
+        } else if (oldTicket != null) {
+            counts(ticket.getEventId()).decrementAndGet(partition);
+        }
+        changed(ticket.getEventId());
+    }
+
+    private void changed(long eventId) {
+        changeListeners.forEach(changeListener -> changeListener.accept(eventId));
+    }
+
+    private AtomicLongArray counts(long eventId) {
+        return freeCounts.computeIfAbsent(eventId, id -> new AtomicLongArray(affinity.partitions()));
+    }
+
+    /*
+        All set to start with - nothing is known about a partition until it is read
+     */
+    private AtomicLongArray bits(long eventId) {
+        return mayHaveFree.computeIfAbsent(eventId, id -> {
+            AtomicLongArray bits = new AtomicLongArray((affinity.partitions() + 63) / 64);
+            for (int word = 0; word < bits.length(); word++) {
+                bits.set(word, -1L);
+            }
+            return bits;
+        });
+    }
+
+    private static boolean isSet(AtomicLongArray bits, int partition) {
+        return (bits.get(partition >>> 6) & (1L << partition)) != 0;
+    }
+
+    private static void set(AtomicLongArray bits, int partition) {
+        long word;
+        do {
+            word = bits.get(partition >>> 6);
+        } while ((word & (1L << partition)) == 0 && !bits.compareAndSet(partition >>> 6, word, word | (1L << partition)));
+    }
+
+    private static void clear(AtomicLongArray bits, int partition) {
+        long word;
+        do {
+            word = bits.get(partition >>> 6);
+        } while ((word & (1L << partition)) != 0 && !bits.compareAndSet(partition >>> 6, word, word & ~(1L << partition)));
+    }
+}
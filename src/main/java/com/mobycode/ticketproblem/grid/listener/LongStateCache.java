@@ -0,0 +1,90 @@
+package com.mobycode.ticketproblem.grid.listener;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+    Fixed size, direct mapped cache of a small state per primitive long key - no boxing, no entry objects and no
+    locks.  Each slot packs the key, a version and the state into one long (key << KEY_SHIFT | version << STATE_BITS
+    | state) so a reader can never see one key's state under another key.  A key hashes to exactly one slot and
+    evicts whoever was there, which bounds the cache at its slot count.
+
+    Every write to a slot bumps its version, so a compare-and-set against a slot read earlier fails if anything at
+    all was written in between - even a write that put back the very same key and state (which a bare key and state
+    compare would miss).  The version wraps after 2^VERSION_BITS writes to one slot during a single lookup.
+
+    Keys must be between 0 and MAX_KEY - anything else is simply never cached
+ */
+class LongStateCache {
+
+    static final int STATE_BITS = 2;
+    static final int VERSION_BITS = 16;
+    static final int KEY_SHIFT = STATE_BITS + VERSION_BITS;
+    static final long MAX_KEY = Long.MAX_VALUE >>> KEY_SHIFT;
+    //state values 1..3 - an empty slot is 0
+    static final int MISSING = 0;
+
+    private static final long STATE_MASK = (1L << STATE_BITS) - 1;
+    private static final long VERSION_MASK = (1L << VERSION_BITS) - 1;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+
+    LongStateCache(int slotCount) {
+        if (Integer.bitCount(slotCount) != 1) {
+            throw new IllegalArgumentException("The number of cache slots must be a power of two, not " + slotCount);
+        }
+        slots = new AtomicLongArray(slotCount);
+        mask = slotCount - 1;
+    }
+
+    /*
+        the state of the key in a raw slot (see slot), or MISSING
+     */
+    static int state(long key, long slot) {
+        return slot >>> KEY_SHIFT == key ? (int) (slot & STATE_MASK) : MISSING;
+    }
+
+    /*
+        The raw slot, version included, to pass to putIfUnchanged after looking the key up elsewhere
+     */
+    long slot(long key) {
+        return slots.get(index(key));
+    }
+
+    /*
+        Cache a state looked up elsewhere unless the slot was written meanwhile (e.g. an invalidation arrived) - a
+        stale lookup never overwrites a newer state
+     */
+    void putIfUnchanged(long key, int state, long expectedSlot) {
+        if (cacheable(key)) {
+            slots.compareAndSet(index(key), expectedSlot, pack(key, state, expectedSlot));
+        }
+    }
+
+    void put(long key, int state) {
+        if (cacheable(key)) {
+            int index = index(key);
+            long slot;
+            do {
+                slot = slots.get(index);
+            } while (!slots.compareAndSet(index, slot, pack(key, state, slot)));
+        }
+    }
+
+    private static boolean cacheable(long key) {
+        return key >= 0 && key <= MAX_KEY;
+    }
+
+    /*
+        the slot that replaces previous - one version on
+     */
+    private static long pack(long key, int state, long previous) {
+        long version = ((previous >>> STATE_BITS) + 1) & VERSION_MASK;
+        return key << KEY_SHIFT | version << STATE_BITS | state;
+    }
+
+    private int index(long key) {
+        //spread sequential ids over the table (fibonacci hashing)
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+}
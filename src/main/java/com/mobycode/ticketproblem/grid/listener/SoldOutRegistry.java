@@ -0,0 +1,99 @@
+package com.mobycode.ticketproblem.grid.listener;
+
+import com.mobycode.ticketproblem.model.Ticket;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.cache.query.ContinuousQuery;
+import org.apache.ignite.cache.query.QueryCursor;
+import org.apache.ignite.cache.query.ScanQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.cache.Cache;
+import javax.cache.event.CacheEntryEvent;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+    Node local view of which tickets are no longer available.
+
+    Fed by a continuous query over the ticket map so losing booking attempts can be rejected without a grid
+    round trip or an entry lock.  The view is only ever a hint - it can lag the grid by a notification - so a ticket
+    that isn't in here still goes through the entry processor, and a ticket that becomes available again
+    (e.g. a cancelled booking) is removed as soon as its update arrives.
+ */
+@Slf4j
+@Component
+public class SoldOutRegistry {
+
+    //ticket id -> the customer it is booked for (NO_CUSTOMER while it is only held)
+    private final ConcurrentMap<Long, Long> soldOut = new ConcurrentHashMap<>();
+
+    private final IgniteCache<Long, Ticket> ticketMap;
+
+    private QueryCursor<Cache.Entry<Long, Ticket>> cursor;
+
+    @Autowired
+    public SoldOutRegistry(IgniteCache<Long, Ticket> ticketMap) {
+        this.ticketMap = ticketMap;
+    }
+
+    @PostConstruct
+    public void start() {
+        ContinuousQuery<Long, Ticket> query = new ContinuousQuery<>();
+        //seed with tickets already booked before this node joined
+        query.setInitialQuery(new ScanQuery<Long, Ticket>((ticketId, ticket) -> !ticket.isAvailable()));
+        //only ship changes that can alter the registry.  New available tickets count - IgniteCache.clear raises no
+        //events, so a ticket booked, cleared and loaded again only leaves the registry through its load
+        query.setRemoteFilter(event -> event.getValue() == null
+                || !event.getValue().isAvailable()
+                || event.getOldValue() == null
+                || !event.getOldValue().isAvailable());
+        query.setLocalListener(events -> events.forEach(this::apply));
+        cursor = ticketMap.query(query);
+        cursor.forEach(entry -> soldOut.put(entry.getKey(), bookedFor(entry.getValue())));
+        log.debug("Sold out registry started with {} sold out tickets", soldOut.size());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (cursor != null) {
+            cursor.close();
+        }
+    }
+
+    public boolean isSoldOut(Long ticketId) {
+        return soldOut.containsKey(ticketId);
+    }
+
+    /*
+        Sold out and booked, not just held - a hold may still be extended by its customer (see HoldTicket)
+     */
+    public boolean isBooked(Long ticketId) {
+        Long bookedFor = soldOut.get(ticketId);
+        return bookedFor != null && bookedFor != Ticket.NO_CUSTOMER;
+    }
+
+    /*
+        lets a retried booking from the customer who won a ticket be answered as booked rather than not available
+     */
+    public boolean isBookedFor(Long ticketId, long customerId) {
+        Long bookedFor = soldOut.get(ticketId);
+        return bookedFor != null && bookedFor == customerId && customerId != Ticket.NO_CUSTOMER;
+    }
+
+    private static long bookedFor(Ticket ticket) {
+        return ticket.isHeld() ? Ticket.NO_CUSTOMER : ticket.getCustomerReference();
+    }
+
+    private void apply(CacheEntryEvent<? extends Long, ? extends Ticket> event) {
+        Ticket ticket = event.getValue();
+        if (ticket == null || ticket.isAvailable()) {
+            soldOut.remove(event.getKey());
+        } else {
+            soldOut.put(event.getKey(), bookedFor(ticket));
+        }
+    }
+}
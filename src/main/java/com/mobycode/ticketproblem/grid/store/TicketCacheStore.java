@@ -0,0 +1,137 @@
+package com.mobycode.ticketproblem.grid.store;
+
+import com.mobycode.ticketproblem.model.Ticket;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ignite.cache.store.CacheStoreAdapter;
+import org.apache.ignite.lang.IgniteBiInClosure;
+import org.h2.jdbcx.JdbcConnectionPool;
+
+import javax.cache.Cache;
+import javax.cache.integration.CacheLoaderException;
+import javax.cache.integration.CacheWriterException;
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.Collection;
+import java.util.Collections;
+
+/*
+    Persists the ticket map to a (file based) H2 database.
+
+    Configured for write-behind so Ignite coalesces updates per key and hands them to writeAll in batches from its
+    flusher threads - the booking path never waits on the database.  Also used for read-through and to load the
+    grid on startup.
+ */
+@Slf4j
+public class TicketCacheStore extends CacheStoreAdapter<Long, Ticket> {
+
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS ticket (id BIGINT PRIMARY KEY, event_id BIGINT NOT NULL, "
+            + "available BOOLEAN NOT NULL, customer_reference BIGINT NOT NULL, hold_expires_at BIGINT NOT NULL)";
+    private static final String SELECT = "SELECT id, event_id, available, customer_reference, hold_expires_at FROM ticket WHERE id = ?";
+    private static final String SELECT_ALL = "SELECT id, event_id, available, customer_reference, hold_expires_at FROM ticket";
+    private static final String MERGE =
+            "MERGE INTO ticket (id, event_id, available, customer_reference, hold_expires_at) KEY (id) VALUES (?, ?, ?, ?, ?)";
+    private static final String DELETE = "DELETE FROM ticket WHERE id = ?";
+
+    private final String url;
+    private final String user;
+    private final String password;
+
+    private DataSource dataSource;
+
+    public TicketCacheStore(String url, String user, String password) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+    }
+
+    @Override
+    public Ticket load(Long ticketId) throws CacheLoaderException {
+        try (Connection connection = dataSource().getConnection();
+             PreparedStatement select = connection.prepareStatement(SELECT)) {
+            select.setLong(1, ticketId);
+            try (ResultSet resultSet = select.executeQuery()) {
+                return resultSet.next() ? ticket(resultSet) : null;
+            }
+        } catch (SQLException e) {
+            throw new CacheLoaderException("Failed to load ticket with id:" + ticketId, e);
+        }
+    }
+
+    @Override
+    public void loadCache(IgniteBiInClosure<Long, Ticket> closure, Object... args) throws CacheLoaderException {
+        try (Connection connection = dataSource().getConnection();
+             Statement selectAll = connection.createStatement();
+             ResultSet resultSet = selectAll.executeQuery(SELECT_ALL)) {
+            while (resultSet.next()) {
+                Ticket ticket = ticket(resultSet);
+                closure.apply(ticket.getId(), ticket);
+            }
+        } catch (SQLException e) {
+            throw new CacheLoaderException("Failed to load tickets", e);
+        }
+    }
+
+    @Override
+    public void write(Cache.Entry<? extends Long, ? extends Ticket> entry) throws CacheWriterException {
+        writeAll(Collections.singletonList(entry));
+    }
+
+    @Override
+    public void writeAll(Collection<Cache.Entry<? extends Long, ? extends Ticket>> entries) throws CacheWriterException {
+        try (Connection connection = dataSource().getConnection();
+             PreparedStatement merge = connection.prepareStatement(MERGE)) {
+            for (Cache.Entry<? extends Long, ? extends Ticket> entry : entries) {
+                Ticket ticket = entry.getValue();
+                merge.setLong(1, entry.getKey());
+                merge.setLong(2, ticket.getEventId());
+                merge.setBoolean(3, ticket.isAvailable());
+                merge.setLong(4, ticket.getCustomerReference());
+                merge.setLong(5, ticket.getHoldExpiresAt());
+                merge.addBatch();
+            }
+            merge.executeBatch();
+        } catch (SQLException e) {
+            throw new CacheWriterException("Failed to write " + entries.size() + " tickets", e);
+        }
+    }
+
+    @Override
+    public void delete(Object ticketId) throws CacheWriterException {
+        deleteAll(Collections.singletonList(ticketId));
+    }
+
+    @Override
+    public void deleteAll(Collection<?> ticketIds) throws CacheWriterException {
+        try (Connection connection = dataSource().getConnection();
+             PreparedStatement delete = connection.prepareStatement(DELETE)) {
+            for (Object ticketId : ticketIds) {
+                delete.setLong(1, (Long) ticketId);
+                delete.addBatch();
+            }
+            delete.executeBatch();
+        } catch (SQLException e) {
+            throw new CacheWriterException("Failed to delete " + ticketIds.size() + " tickets", e);
+        }
+    }
+
+    private synchronized DataSource dataSource() throws SQLException {
+        if (dataSource == null) {
+            JdbcConnectionPool connectionPool = JdbcConnectionPool.create(url, user, password);
+            try (Connection connection = connectionPool.getConnection();
+                 Statement createTable = connection.createStatement()) {
+                createTable.execute(CREATE_TABLE);
+            }
+            log.debug("Ticket store opened at {}", url);
+            dataSource = connectionPool;
+        }
+        return dataSource;
+    }
+
+    private static Ticket ticket(ResultSet resultSet) throws SQLException {
+        Ticket ticket = new Ticket(resultSet.getLong("id"), resultSet.getLong("event_id"));
+        ticket.setAvailable(resultSet.getBoolean("available"));
+        ticket.setCustomerReference(resultSet.getLong("customer_reference"));
+        ticket.setHoldExpiresAt(resultSet.getLong("hold_expires_at"));
+        return ticket;
+    }
+}
@@ -0,0 +1,24 @@
+package com.mobycode.ticketproblem.grid.store;
+
+import javax.cache.configuration.Factory;
+
+/*
+    Serializable factory shipped to every node with the ticket map's configuration - each node creates its own store
+ */
+public class TicketCacheStoreFactory implements Factory<TicketCacheStore> {
+
+    private final String url;
+    private final String user;
+    private final String password;
+
+    public TicketCacheStoreFactory(String url, String user, String password) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+    }
+
+    @Override
+    public TicketCacheStore create() {
+        return new TicketCacheStore(url, user, password);
+    }
+}
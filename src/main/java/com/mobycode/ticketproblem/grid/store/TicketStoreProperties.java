@@ -0,0 +1,38 @@
+package com.mobycode.ticketproblem.grid.store;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/*
+    Write-behind persistence of the ticket map (see TicketCacheStore) - bound from ticketproblem.store.*
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ticketproblem.store")
+public class TicketStoreProperties {
+
+    private boolean enabled;
+
+    private String url = "jdbc:h2:file:./data/tickets";
+
+    private String user = "sa";
+
+    private String password = "";
+
+    private WriteBehind writeBehind = new WriteBehind();
+
+    /*
+        updates are coalesced per key and flushed when either limit is reached
+     */
+    @Getter
+    @Setter
+    public static class WriteBehind {
+
+        private int flushSize = 10240;
+
+        private long flushFrequencyMillis = 1000;
+
+        private int batchSize = 512;
+    }
+}
@@ -0,0 +1,22 @@
+package com.mobycode.ticketproblem.metrics;
+
+/*
+    Where a booking's latency was measured from
+ */
+public enum BookingInterface {
+
+    HTTP("HTTP/JSON route"),
+    SERVICE("Booking service"),
+    GRID("Data grid entry processor"),
+    BINARY("Binary TCP protocol");
+
+    private final String label;
+
+    BookingInterface(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
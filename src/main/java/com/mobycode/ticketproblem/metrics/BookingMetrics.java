@@ -0,0 +1,126 @@
+package com.mobycode.ticketproblem.metrics;
+
+import com.mobycode.ticketproblem.model.BookTicketResult;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+    Booking latency histograms (per interface and result) and in flight counts.
+
+    Recording is wait free and allocation free - HdrHistogram recorders are only swapped out and merged into the
+    running totals when the metrics are read.  Published over JMX and the /metrics route.
+ */
+@Component
+@ManagedResource(objectName = "com.mobycode.ticketproblem:type=BookingMetrics", description = "Booking latency and outcomes")
+public class BookingMetrics {
+
+    //anything slower is recorded as the maximum
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final Recorder[][] recorders = new Recorder[BookingInterface.values().length][BookTicketResult.values().length];
+    private final Histogram[][] totals = new Histogram[BookingInterface.values().length][BookTicketResult.values().length];
+    private final Histogram[][] intervals = new Histogram[BookingInterface.values().length][BookTicketResult.values().length];
+    private final LongAdder[] inFlight = new LongAdder[BookingInterface.values().length];
+
+    public BookingMetrics() {
+        for (BookingInterface bookingInterface : BookingInterface.values()) {
+            inFlight[bookingInterface.ordinal()] = new LongAdder();
+            for (BookTicketResult result : BookTicketResult.values()) {
+                recorders[bookingInterface.ordinal()][result.ordinal()] = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+                totals[bookingInterface.ordinal()][result.ordinal()] = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+            }
+        }
+    }
+
+    /*
+        Mark a booking as in flight - returns the start time to pass to finished()
+     */
+    public long started(BookingInterface bookingInterface) {
+        inFlight[bookingInterface.ordinal()].increment();
+        return System.nanoTime();
+    }
+
+    public void finished(BookingInterface bookingInterface, BookTicketResult result, long startNanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        recorders[bookingInterface.ordinal()][result.ordinal()].recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+        inFlight[bookingInterface.ordinal()].decrement();
+    }
+
+    @ManagedAttribute(description = "Bookings in flight through the HTTP/JSON route")
+    public long getHttpInFlight() {
+        return inFlight[BookingInterface.HTTP.ordinal()].sum();
+    }
+
+    @ManagedAttribute(description = "Bookings in flight through the booking service")
+    public long getServiceInFlight() {
+        return inFlight[BookingInterface.SERVICE.ordinal()].sum();
+    }
+
+    @ManagedAttribute(description = "Bookings in flight on the data grid")
+    public long getGridInFlight() {
+        return inFlight[BookingInterface.GRID.ordinal()].sum();
+    }
+
+    @ManagedAttribute(description = "Bookings in flight through the binary TCP protocol")
+    public long getBinaryInFlight() {
+        return inFlight[BookingInterface.BINARY.ordinal()].sum();
+    }
+
+    @ManagedOperation(description = "Number of bookings recorded for an interface (HTTP, SERVICE, GRID, BINARY) and result")
+    public synchronized long count(String bookingInterface, String result) {
+        return total(BookingInterface.valueOf(bookingInterface), BookTicketResult.valueOf(result)).getTotalCount();
+    }
+
+    @ManagedOperation(description = "Booking latency (microseconds) at a percentile for an interface (HTTP, SERVICE, GRID, BINARY) and result")
+    public synchronized long latencyPercentile(String bookingInterface, String result, double percentile) {
+        return total(BookingInterface.valueOf(bookingInterface), BookTicketResult.valueOf(result)).getValueAtPercentile(percentile);
+    }
+
+    /*
+        All metrics as nested maps (for JSON) - latencies are in microseconds
+     */
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> inFlightCounts = new LinkedHashMap<>();
+        Map<String, Object> latencies = new LinkedHashMap<>();
+        for (BookingInterface bookingInterface : BookingInterface.values()) {
+            inFlightCounts.put(bookingInterface.name(), inFlight[bookingInterface.ordinal()].sum());
+            Map<String, Object> byResult = new LinkedHashMap<>();
+            for (BookTicketResult result : BookTicketResult.values()) {
+                Histogram histogram = total(bookingInterface, result);
+                Map<String, Object> summary = new LinkedHashMap<>();
+                summary.put("count", histogram.getTotalCount());
+                summary.put("mean", histogram.getMean());
+                for (double percentile : PERCENTILES) {
+                    summary.put("p" + percentile, histogram.getValueAtPercentile(percentile));
+                }
+                summary.put("max", histogram.getMaxValue());
+                byResult.put(result.name(), summary);
+            }
+            latencies.put(bookingInterface.name(), byResult);
+        }
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("inFlight", inFlightCounts);
+        snapshot.put("latencyMicros", latencies);
+        return snapshot;
+    }
+
+    //callers hold the monitor - interval histograms are recycled between reads
+    private Histogram total(BookingInterface bookingInterface, BookTicketResult result) {
+        int i = bookingInterface.ordinal();
+        int r = result.ordinal();
+        intervals[i][r] = recorders[i][r].getIntervalHistogram(intervals[i][r]);
+        totals[i][r].add(intervals[i][r]);
+        return totals[i][r];
+    }
+}
@@ -0,0 +1,34 @@
+package com.mobycode.ticketproblem.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.apache.ignite.binary.BinaryObjectException;
+import org.apache.ignite.binary.BinaryReader;
+import org.apache.ignite.binary.BinaryWriter;
+import org.apache.ignite.binary.Binarylizable;
+
+import java.io.Serializable;
+
+/*
+    Book any free ticket of an event - the booking result names the ticket booked
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor    //for Jackson serialisation
+public class AnyTicketRequest implements Serializable, Binarylizable {
+    private long eventId;
+    private long customerId;
+
+    @Override
+    public void writeBinary(BinaryWriter writer) throws BinaryObjectException {
+        writer.rawWriter().writeLong(eventId);
+        writer.rawWriter().writeLong(customerId);
+    }
+
+    @Override
+    public void readBinary(BinaryReader reader) throws BinaryObjectException {
+        eventId = reader.rawReader().readLong();
+        customerId = reader.rawReader().readLong();
+    }
+}
@@ -0,0 +1,22 @@
+package com.mobycode.ticketproblem.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/*
+    One page of an event's free tickets, in ticket id order.  Ask for the next page after nextAfter - null on the
+    last page.  free counts all of the event's free tickets - on the first page only, null on the rest
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor //for Jackson serialisation
+public class AvailableTickets implements Serializable {
+    private Long eventId;
+    private List<Long> ticketIds;
+    private Long nextAfter;
+    private Long free;
+}
@@ -6,7 +6,17 @@ public enum BookTicketResult implements Serializable {
 
     TICKET_BOOKED("Ticket booked"),
     TICKET_NOT_AVAILABLE("Ticket not available"),
-    BOOKING_ERROR("Error while booking");
+    BOOKING_ERROR("Error while booking"),
+    //turned away by admission control without being attempted - retry later
+    SERVICE_BUSY("Too many bookings in progress"),
+    TICKET_BUSY("Too many bookings in progress for this ticket"),
+    //two phase bookings - a hold, then confirm (TICKET_BOOKED) or release
+    TICKET_HELD("Ticket held"),
+    HOLD_RELEASED("Hold released"),
+    HOLD_EXPIRED("Hold expired"),
+    HOLD_NOT_FOUND("No hold on the ticket for the customer"),
+    CUSTOMER_NOT_ELIGIBLE("Customer unknown or not allowed to book"),
+    CUSTOMER_LIMIT_REACHED("Customer already holds as many tickets as allowed");
 
     private final String label;
 
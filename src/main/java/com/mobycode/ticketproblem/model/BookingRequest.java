@@ -3,13 +3,38 @@ package com.mobycode.ticketproblem.model;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import org.apache.ignite.binary.BinaryObjectException;
+import org.apache.ignite.binary.BinaryReader;
+import org.apache.ignite.binary.BinaryWriter;
+import org.apache.ignite.binary.Binarylizable;
 
 import java.io.Serializable;
 
 @Getter
 @AllArgsConstructor
 @NoArgsConstructor    //for Jackson serialisation
-public class BookingRequest implements Serializable {
-    private Long ticketId;
-    private Long customerId;
+public class BookingRequest implements Serializable, Binarylizable {
+    private long ticketId;
+    private long customerId;
+    //optional - a client retrying a booking sends the same key and gets the first attempt's result back
+    private String idempotencyKey;
+
+    public BookingRequest(long ticketId, long customerId) {
+        this(ticketId, customerId, null);
+    }
+
+    //requests are only ever sent, never queried - raw binary skips the field metadata
+    @Override
+    public void writeBinary(BinaryWriter writer) throws BinaryObjectException {
+        writer.rawWriter().writeLong(ticketId);
+        writer.rawWriter().writeLong(customerId);
+        writer.rawWriter().writeString(idempotencyKey);
+    }
+
+    @Override
+    public void readBinary(BinaryReader reader) throws BinaryObjectException {
+        ticketId = reader.rawReader().readLong();
+        customerId = reader.rawReader().readLong();
+        idempotencyKey = reader.rawReader().readString();
+    }
 }
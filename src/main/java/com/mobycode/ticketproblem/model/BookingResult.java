@@ -3,13 +3,36 @@ package com.mobycode.ticketproblem.model;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import org.apache.ignite.binary.BinaryObjectException;
+import org.apache.ignite.binary.BinaryReader;
+import org.apache.ignite.binary.BinaryWriter;
+import org.apache.ignite.binary.Binarylizable;
 
 import java.io.Serializable;
 
 @Getter
 @AllArgsConstructor
 @NoArgsConstructor //for Jackson serialisation
-public class BookingResult implements Serializable {
-    private BookingRequest bookingRequest;
+public class BookingResult implements Serializable, Binarylizable {
+    private long ticketId;
+    private long customerId;
     private BookTicketResult bookTicketResult;
+
+    public BookingResult(BookingRequest bookingRequest, BookTicketResult bookTicketResult) {
+        this(bookingRequest.getTicketId(), bookingRequest.getCustomerId(), bookTicketResult);
+    }
+
+    @Override
+    public void writeBinary(BinaryWriter writer) throws BinaryObjectException {
+        writer.rawWriter().writeLong(ticketId);
+        writer.rawWriter().writeLong(customerId);
+        writer.rawWriter().writeEnum(bookTicketResult);
+    }
+
+    @Override
+    public void readBinary(BinaryReader reader) throws BinaryObjectException {
+        ticketId = reader.rawReader().readLong();
+        customerId = reader.rawReader().readLong();
+        bookTicketResult = reader.rawReader().readEnum();
+    }
 }
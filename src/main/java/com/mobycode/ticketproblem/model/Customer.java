@@ -2,18 +2,38 @@ package com.mobycode.ticketproblem.model;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.apache.ignite.binary.BinaryObjectException;
+import org.apache.ignite.binary.BinaryReader;
+import org.apache.ignite.binary.BinaryWriter;
+import org.apache.ignite.binary.Binarylizable;
 
 import java.io.Serializable;
 
 @Getter
 @Setter
-public class Customer implements Serializable {
+public class Customer implements Serializable, Binarylizable {
 
 
-    public Customer(Long id) {
+    public Customer(long id) {
         this.id = id;
     }
 
-    private final Long id;
+    private long id;
     private String displayName;
+    //blocked customers may not book
+    private boolean blocked;
+
+    @Override
+    public void writeBinary(BinaryWriter writer) throws BinaryObjectException {
+        writer.writeLong("id", id);
+        writer.writeString("displayName", displayName);
+        writer.writeBoolean("blocked", blocked);
+    }
+
+    @Override
+    public void readBinary(BinaryReader reader) throws BinaryObjectException {
+        id = reader.readLong("id");
+        displayName = reader.readString("displayName");
+        blocked = reader.readBoolean("blocked");
+    }
 }
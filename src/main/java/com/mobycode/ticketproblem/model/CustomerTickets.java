@@ -0,0 +1,83 @@
+package com.mobycode.ticketproblem.model;
+
+import org.apache.ignite.binary.BinaryObjectException;
+import org.apache.ignite.binary.BinaryReader;
+import org.apache.ignite.binary.BinaryWriter;
+import org.apache.ignite.binary.Binarylizable;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+    The tickets a customer has booked or holds - the customer bookings map's value, keyed like the customer map by
+    customer id
+ */
+public class CustomerTickets implements Serializable, Binarylizable {
+
+    private static final long[] NONE = new long[0];
+
+    private long customerId;
+    private long[] ticketIds = NONE;
+
+    public CustomerTickets() {
+    }
+
+    public CustomerTickets(long customerId) {
+        this.customerId = customerId;
+    }
+
+    public long getCustomerId() {
+        return customerId;
+    }
+
+    public List<Long> getTicketIds() {
+        List<Long> ids = new ArrayList<>(ticketIds.length);
+        for (long ticketId : ticketIds) {
+            ids.add(ticketId);
+        }
+        return ids;
+    }
+
+    public int count() {
+        return ticketIds.length;
+    }
+
+    public boolean add(long ticketId) {
+        if (contains(ticketId)) {
+            return false;
+        }
+        ticketIds = Arrays.copyOf(ticketIds, ticketIds.length + 1);
+        ticketIds[ticketIds.length - 1] = ticketId;
+        return true;
+    }
+
+    public boolean remove(long ticketId) {
+        long[] others = Arrays.stream(ticketIds).filter(id -> id != ticketId).toArray();
+        boolean removed = others.length != ticketIds.length;
+        ticketIds = others;
+        return removed;
+    }
+
+    public boolean contains(long ticketId) {
+        for (long id : ticketIds) {
+            if (id == ticketId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void writeBinary(BinaryWriter writer) throws BinaryObjectException {
+        writer.rawWriter().writeLong(customerId);
+        writer.rawWriter().writeLongArray(ticketIds);
+    }
+
+    @Override
+    public void readBinary(BinaryReader reader) throws BinaryObjectException {
+        customerId = reader.rawReader().readLong();
+        ticketIds = reader.rawReader().readLongArray();
+    }
+}
@@ -0,0 +1,19 @@
+package com.mobycode.ticketproblem.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/*
+    How many of an event's tickets are free - pushed to availability feed subscribers as it changes
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor //for Jackson serialisation
+public class EventAvailability implements Serializable {
+    private Long eventId;
+    private Long free;
+    private Boolean soldOut;
+}
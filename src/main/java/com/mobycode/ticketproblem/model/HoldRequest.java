@@ -0,0 +1,19 @@
+package com.mobycode.ticketproblem.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/*
+    ttlSeconds is optional - the configured hold time is used without it
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor    //for Jackson serialisation
+public class HoldRequest implements Serializable {
+    private Long ticketId;
+    private Long customerId;
+    private Long ttlSeconds;
+}
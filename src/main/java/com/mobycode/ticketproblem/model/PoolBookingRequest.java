@@ -0,0 +1,16 @@
+package com.mobycode.ticketproblem.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor    //for Jackson serialisation
+public class PoolBookingRequest implements Serializable {
+    private Long eventId;
+    private Long customerId;
+    private Integer quantity;
+}
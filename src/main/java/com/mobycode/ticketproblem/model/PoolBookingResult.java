@@ -0,0 +1,15 @@
+package com.mobycode.ticketproblem.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor //for Jackson serialisation
+public class PoolBookingResult implements Serializable {
+    private PoolBookingRequest poolBookingRequest;
+    private BookTicketResult bookTicketResult;
+}
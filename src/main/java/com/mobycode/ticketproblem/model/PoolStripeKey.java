@@ -0,0 +1,18 @@
+package com.mobycode.ticketproblem.model;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.io.Serializable;
+
+/*
+    Key of one stripe of a ticket pool's remaining count - stripes of a pool spread over the grid's partitions
+ */
+@Getter
+@EqualsAndHashCode
+@AllArgsConstructor
+public class PoolStripeKey implements Serializable {
+    private final Long eventId;
+    private final Integer stripe;
+}
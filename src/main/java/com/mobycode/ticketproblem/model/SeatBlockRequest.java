@@ -0,0 +1,17 @@
+package com.mobycode.ticketproblem.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor    //for Jackson serialisation
+public class SeatBlockRequest implements Serializable {
+    private Long eventId;
+    private Integer section;
+    private Long customerId;
+    private Integer quantity;
+}
@@ -0,0 +1,24 @@
+package com.mobycode.ticketproblem.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/*
+    row and firstSeat locate the booked block - they are only set when the seats were booked
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor //for Jackson serialisation
+public class SeatBlockResult implements Serializable {
+    private SeatBlockRequest seatBlockRequest;
+    private BookTicketResult bookTicketResult;
+    private Integer row;
+    private Integer firstSeat;
+
+    public SeatBlockResult(SeatBlockRequest seatBlockRequest, BookTicketResult bookTicketResult) {
+        this(seatBlockRequest, bookTicketResult, null, null);
+    }
+}
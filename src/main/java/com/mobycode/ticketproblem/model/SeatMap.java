@@ -0,0 +1,137 @@
+package com.mobycode.ticketproblem.model;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.apache.ignite.binary.BinaryObjectException;
+import org.apache.ignite.binary.BinaryReader;
+import org.apache.ignite.binary.BinaryWriter;
+import org.apache.ignite.binary.Binarylizable;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/*
+    Reserved seating for one section of a venue - which seats are still free, one bit per seat.
+
+    A section of a couple of thousand seats is a few hundred bytes in one cache entry, so a block of adjacent seats
+    is claimed by a single entry processor invocation (see ClaimSeatBlock) rather than a transaction over one
+    entry per seat.  Row 0 is the front row.
+
+    Each booked block remembers the customer who booked it, so only they can give it back - and only the whole block.
+ */
+@Getter
+public class SeatMap implements Serializable, Binarylizable {
+
+    public SeatMap(long eventId, int section, int rows, int seatsPerRow) {
+        this.eventId = eventId;
+        this.section = section;
+        this.rows = rows;
+        this.seatsPerRow = seatsPerRow;
+        this.free = new BitSet(rows * seatsPerRow);
+        free.set(0, rows * seatsPerRow);
+    }
+
+    private long eventId;
+    private int section;
+    private int rows;
+    private int seatsPerRow;
+    //a set bit is a free seat - seat s of row r is bit r * seatsPerRow + s
+    @Getter(AccessLevel.NONE)
+    private BitSet free;
+    //booked blocks, two longs each - (first seat << 32 | quantity) then the customer id
+    @Getter(AccessLevel.NONE)
+    private long[] blocks = new long[0];
+
+    public int getFreeSeats() {
+        return free.cardinality();
+    }
+
+    public boolean isFree(int row, int seat) {
+        return free.get(row * seatsPerRow + seat);
+    }
+
+    /*
+        Best available block of adjacent seats - the front-most row with room, and in it the block closest to the
+        middle of the row.  Returns the block's first seat as row * seatsPerRow + seat, or -1 if no row has room
+     */
+    public int findBestBlock(int quantity) {
+        if (quantity <= 0 || quantity > seatsPerRow) {
+            return -1;
+        }
+        int middle = (seatsPerRow - quantity) / 2;
+        for (int row = 0; row < rows; row++) {
+            int rowStart = row * seatsPerRow;
+            int rowEnd = rowStart + seatsPerRow;
+            int best = -1;
+            int bestDistance = Integer.MAX_VALUE;
+            //walk the runs of free seats in the row
+            int runStart = free.nextSetBit(rowStart);
+            while (runStart >= 0 && runStart < rowEnd) {
+                int runEnd = Math.min(free.nextClearBit(runStart), rowEnd);
+                if (runEnd - runStart >= quantity) {
+                    int first = rowStart + Math.max(runStart - rowStart, Math.min(middle, runEnd - rowStart - quantity));
+                    int distance = Math.abs(first - rowStart - middle);
+                    if (distance < bestDistance) {
+                        best = first;
+                        bestDistance = distance;
+                    }
+                }
+                runStart = free.nextSetBit(runEnd);
+            }
+            if (best >= 0) {
+                return best;
+            }
+        }
+        return -1;
+    }
+
+    public void claim(int first, int quantity, long customerId) {
+        free.clear(first, first + quantity);
+        blocks = Arrays.copyOf(blocks, blocks.length + 2);
+        blocks[blocks.length - 2] = block(first, quantity);
+        blocks[blocks.length - 1] = customerId;
+    }
+
+    /*
+        Return a block to sale - false (and nothing changed) unless exactly this block was booked by customerId
+     */
+    public boolean release(int first, int quantity, long customerId) {
+        long block = block(first, quantity);
+        for (int i = 0; i < blocks.length; i += 2) {
+            if (blocks[i] == block && blocks[i + 1] == customerId) {
+                free.set(first, first + quantity);
+                long[] others = new long[blocks.length - 2];
+                System.arraycopy(blocks, 0, others, 0, i);
+                System.arraycopy(blocks, i + 2, others, i, blocks.length - i - 2);
+                blocks = others;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long block(int first, int quantity) {
+        return (long) first << 32 | quantity;
+    }
+
+    @Override
+    public void writeBinary(BinaryWriter writer) throws BinaryObjectException {
+        writer.writeLong("eventId", eventId);
+        writer.writeInt("section", section);
+        writer.writeInt("rows", rows);
+        writer.writeInt("seatsPerRow", seatsPerRow);
+        writer.writeLongArray("free", free.toLongArray());
+        writer.writeLongArray("blocks", blocks);
+    }
+
+    @Override
+    public void readBinary(BinaryReader reader) throws BinaryObjectException {
+        eventId = reader.readLong("eventId");
+        section = reader.readInt("section");
+        rows = reader.readInt("rows");
+        seatsPerRow = reader.readInt("seatsPerRow");
+        free = BitSet.valueOf(reader.readLongArray("free"));
+        blocks = reader.readLongArray("blocks");
+    }
+}
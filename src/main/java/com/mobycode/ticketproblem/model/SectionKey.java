@@ -0,0 +1,18 @@
+package com.mobycode.ticketproblem.model;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.io.Serializable;
+
+/*
+    Key of one venue section's seat map for an event
+ */
+@Getter
+@EqualsAndHashCode
+@AllArgsConstructor
+public class SectionKey implements Serializable {
+    private final Long eventId;
+    private final Integer section;
+}
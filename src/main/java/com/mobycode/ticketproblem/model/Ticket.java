@@ -2,21 +2,77 @@ package com.mobycode.ticketproblem.model;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.apache.ignite.cache.query.annotations.QuerySqlField;
+import org.apache.ignite.binary.BinaryObjectException;
+import org.apache.ignite.binary.BinaryReader;
+import org.apache.ignite.binary.BinaryWriter;
+import org.apache.ignite.binary.Binarylizable;
 
 import java.io.Serializable;
 
+/*
+    Written as named binary fields (rather than raw) so tickets can still be queried on the grid
+ */
 @Getter
 @Setter
-public class Ticket implements Serializable {
+public class Ticket implements Serializable, Binarylizable {
 
+    //customer reference of a ticket nobody has booked
+    public static final long NO_CUSTOMER = 0L;
 
-    public Ticket(Long id) {
+    public Ticket(long id) {
         this.id = id;
         this.available = true;
     }
 
-    private final Long id;
-    private Boolean available;
-    private Long customerReference;
+    public Ticket(long id, long eventId) {
+        this(id);
+        this.eventId = eventId;
+    }
+
+    private long id;
+    //an event's free tickets are found with the (eventId, available) index - see FreeTicketIndex
+    @QuerySqlField(orderedGroups = {@QuerySqlField.Group(name = "event_available_idx", order = 0)})
+    private long eventId;
+    @QuerySqlField(index = true, orderedGroups = {@QuerySqlField.Group(name = "event_available_idx", order = 1)})
+    private boolean available;
+    private long customerReference;
+    //while a ticket is held for a customer's checkout it is unavailable until this time (epoch millis) - 0 once
+    //the hold is confirmed or for a ticket that was never held
+    private long holdExpiresAt;
+
+    public boolean isHeld() {
+        return holdExpiresAt != 0;
+    }
+
+    public boolean isHeldBy(long customerId) {
+        return isHeld() && customerReference == customerId;
+    }
 
+    /*
+        back on sale - a released or expired hold
+     */
+    public void makeAvailable() {
+        available = true;
+        customerReference = NO_CUSTOMER;
+        holdExpiresAt = 0;
+    }
+
+    @Override
+    public void writeBinary(BinaryWriter writer) throws BinaryObjectException {
+        writer.writeLong("id", id);
+        writer.writeLong("eventId", eventId);
+        writer.writeBoolean("available", available);
+        writer.writeLong("customerReference", customerReference);
+        writer.writeLong("holdExpiresAt", holdExpiresAt);
+    }
+
+    @Override
+    public void readBinary(BinaryReader reader) throws BinaryObjectException {
+        id = reader.readLong("id");
+        eventId = reader.readLong("eventId");
+        available = reader.readBoolean("available");
+        customerReference = reader.readLong("customerReference");
+        holdExpiresAt = reader.readLong("holdExpiresAt");
+    }
 }
@@ -0,0 +1,20 @@
+package com.mobycode.ticketproblem.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/*
+    The grid node that is primary for a ticket - gateways send the ticket's bookings to its restAddress
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor //for Jackson serialisation
+public class TicketOwner implements Serializable {
+    private long ticketId;
+    private int partition;
+    private String nodeId;
+    private String restAddress;
+}
@@ -0,0 +1,24 @@
+package com.mobycode.ticketproblem.model;
+
+import lombok.Getter;
+
+import java.io.Serializable;
+
+/*
+    General admission inventory for an event - remaining tickets are held in stripes (see PoolStripeKey)
+ */
+@Getter
+public class TicketPool implements Serializable {
+
+
+    public TicketPool(Long eventId, Long capacity, Integer stripes) {
+        this.eventId = eventId;
+        this.capacity = capacity;
+        this.stripes = stripes;
+    }
+
+    private final Long eventId;
+    private final Long capacity;
+    private final Integer stripes;
+
+}
@@ -0,0 +1,99 @@
+package com.mobycode.ticketproblem.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+    A concurrency limit that follows latency (gradient style, as in TCP Vegas).
+
+    The lowest latency seen in the last window of samples stands for the unloaded latency.  While the smoothed
+    latency stays within tolerance of it the limit grows by about sqrt(limit) per sample, once requests start
+    queueing it shrinks in proportion - so in flight work settles at roughly what can be served without a queue.
+
+    Releases are on every booking's path, so only about one in SAMPLE_EVERY is sampled, and only by one thread at a
+    time - a release that finds a sample in progress skips it rather than waiting.  No release ever blocks, and the
+    limit moves a sample at a time as before, just over more bookings
+ */
+class AdaptiveLimit {
+
+    private static final int SAMPLE_EVERY = 16;
+    private static final int WINDOW_SAMPLES = 1000 / SAMPLE_EVERY;
+    private static final double SMOOTHING = 0.1;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicBoolean sampling = new AtomicBoolean();
+
+    private volatile double limit;
+    private volatile double smoothedNanos;
+    //only touched by the thread sampling
+    private long noLoadNanos;
+    private long windowMinNanos = Long.MAX_VALUE;
+    private int windowSamples;
+
+    AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+    }
+
+    boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    void release(long latencyNanos) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        if (ThreadLocalRandom.current().nextInt(SAMPLE_EVERY) == 0 && sampling.compareAndSet(false, true)) {
+            try {
+                sample(latencyNanos, inFlightBefore);
+            } finally {
+                sampling.set(false);
+            }
+        }
+    }
+
+    private void sample(long latencyNanos, int inFlightBefore) {
+        windowMinNanos = Math.min(windowMinNanos, latencyNanos);
+        if (noLoadNanos == 0 || latencyNanos < noLoadNanos) {
+            noLoadNanos = latencyNanos;
+        }
+        if (++windowSamples == WINDOW_SAMPLES) {
+            //forget old minimums so the estimate follows the grid as it changes (rebalancing, gc, more nodes)
+            noLoadNanos = windowMinNanos;
+            windowMinNanos = Long.MAX_VALUE;
+            windowSamples = 0;
+        }
+        smoothedNanos = smoothedNanos == 0 ? latencyNanos : smoothedNanos * (1 - SMOOTHING) + latencyNanos * SMOOTHING;
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * Math.max(noLoadNanos, 1) / smoothedNanos));
+        double current = limit;
+        double next = current * gradient;
+        //only grow when the limit is what is holding requests back
+        if (inFlightBefore * 2 >= current) {
+            next += Math.sqrt(current);
+        }
+        limit = Math.max(minLimit, Math.min(maxLimit, current * (1 - SMOOTHING) + next * SMOOTHING));
+    }
+
+    int getLimit() {
+        return (int) limit;
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    long getSmoothedNanos() {
+        return (long) smoothedNanos;
+    }
+}
@@ -0,0 +1,130 @@
+package com.mobycode.ticketproblem.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+    Caps the bookings in flight on this node, and queued behind each ticket, at limits that adapt to booking latency
+    (see AdaptiveLimit).  Bookings over a limit are turned away at once (SERVICE_BUSY / TICKET_BUSY) rather than
+    queueing until everyone times out - the HTTP routes answer them with 503 / 429 and a Retry-After (BusyResponse)
+ */
+@Component
+@ManagedResource(objectName = "com.mobycode.ticketproblem:type=AdmissionControl", description = "Booking admission limits")
+public class AdmissionControl {
+
+    @Value("${ticketproblem.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ticketproblem.admission.node.initial-limit:1000}")
+    private int nodeInitialLimit;
+
+    @Value("${ticketproblem.admission.node.min-limit:50}")
+    private int nodeMinLimit;
+
+    @Value("${ticketproblem.admission.node.max-limit:20000}")
+    private int nodeMaxLimit;
+
+    @Value("${ticketproblem.admission.ticket.initial-limit:1000}")
+    private int ticketInitialLimit;
+
+    @Value("${ticketproblem.admission.ticket.min-limit:10}")
+    private int ticketMinLimit;
+
+    @Value("${ticketproblem.admission.ticket.max-limit:10000}")
+    private int ticketMaxLimit;
+
+    //how far latency may rise above the unloaded latency before the limits come down
+    @Value("${ticketproblem.admission.tolerance:2.0}")
+    private double tolerance;
+
+    @Value("${ticketproblem.admission.retry-after-seconds:1}")
+    private int retryAfterSeconds;
+
+    private AdaptiveLimit nodeLimit;
+    //kept per ticket for the life of the node, like the combiner's queues - bounded by the inventory
+    private final ConcurrentMap<Long, AdaptiveLimit> ticketLimits = new ConcurrentHashMap<>();
+    private final LongAdder nodeRejections = new LongAdder();
+    private final LongAdder ticketRejections = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        nodeLimit = new AdaptiveLimit(nodeInitialLimit, nodeMinLimit, nodeMaxLimit, tolerance);
+    }
+
+    public boolean admitToNode() {
+        if (!enabled) {
+            return true;
+        }
+        if (nodeLimit.tryAcquire()) {
+            return true;
+        }
+        nodeRejections.increment();
+        return false;
+    }
+
+    /*
+        call for every booking admitted to the node once it is answered
+     */
+    public void leftNode(long startNanos) {
+        if (enabled) {
+            nodeLimit.release(System.nanoTime() - startNanos);
+        }
+    }
+
+    public boolean admitToTicket(long ticketId) {
+        if (!enabled) {
+            return true;
+        }
+        if (ticketLimit(ticketId).tryAcquire()) {
+            return true;
+        }
+        ticketRejections.increment();
+        return false;
+    }
+
+    public void leftTicket(long ticketId, long startNanos) {
+        if (enabled) {
+            ticketLimit(ticketId).release(System.nanoTime() - startNanos);
+        }
+    }
+
+    private AdaptiveLimit ticketLimit(long ticketId) {
+        return ticketLimits.computeIfAbsent(ticketId, id -> new AdaptiveLimit(ticketInitialLimit, ticketMinLimit, ticketMaxLimit, tolerance));
+    }
+
+    /*
+        How long a turned away client should wait - at least the configured time, longer while bookings are slow
+     */
+    public int getRetryAfterSeconds() {
+        long smoothedSeconds = enabled ? TimeUnit.NANOSECONDS.toSeconds(nodeLimit.getSmoothedNanos()) : 0;
+        return (int) Math.max(retryAfterSeconds, smoothedSeconds + 1);
+    }
+
+    @ManagedAttribute(description = "Bookings allowed in flight on this node")
+    public int getNodeLimit() {
+        return nodeLimit.getLimit();
+    }
+
+    @ManagedAttribute(description = "Bookings in flight on this node")
+    public int getNodeInFlight() {
+        return nodeLimit.getInFlight();
+    }
+
+    @ManagedAttribute(description = "Bookings turned away by the node limit")
+    public long getNodeRejections() {
+        return nodeRejections.sum();
+    }
+
+    @ManagedAttribute(description = "Bookings turned away by a ticket's limit")
+    public long getTicketRejections() {
+        return ticketRejections.sum();
+    }
+}
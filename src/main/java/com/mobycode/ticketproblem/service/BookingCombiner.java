@@ -0,0 +1,89 @@
+package com.mobycode.ticketproblem.service;
+
+import com.mobycode.ticketproblem.grid.entryprocessor.BookTicket;
+import com.mobycode.ticketproblem.model.BookingRequest;
+import com.mobycode.ticketproblem.model.BookingResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+    Combines concurrent booking requests for the same ticket on this node.
+
+    Requests are queued per ticket and at most one arbitration invoke per ticket is in flight at a time - whatever
+    queued up while it was running is drained into the next one.  Under contention thousands of requests share a
+    single entry lock acquisition instead of queueing for it one by one.  Nothing blocks - the in flight invoke's
+    completion starts the next drain.
+ */
+@Component
+public class BookingCombiner {
+
+    private final ConcurrentMap<Long, TicketQueue> queues = new ConcurrentHashMap<>();
+
+    @Autowired
+    private BookTicket bookTicket;
+
+    @Value("${ticketproblem.combiner.max-batch-size:1000}")
+    private int maxBatchSize;
+
+    public CompletableFuture<BookingResult> submit(BookingRequest bookingRequest) {
+        Long ticketId = bookingRequest.getTicketId();
+        //queues are kept per ticket for the life of the node - bounded by the inventory
+        TicketQueue queue = queues.computeIfAbsent(ticketId, id -> new TicketQueue());
+        PendingBooking pending = new PendingBooking(bookingRequest);
+        queue.pending.add(pending);
+        drain(ticketId, queue);
+        return pending.result;
+    }
+
+    /*
+        Start an invoke for the queued requests unless one is already in flight.  The check for more work happens
+        after the in flight flag is released so a request queued while it was held is never stranded
+     */
+    private void drain(Long ticketId, TicketQueue queue) {
+        while (!queue.pending.isEmpty() && queue.inFlight.compareAndSet(false, true)) {
+            List<PendingBooking> batch = new ArrayList<>();
+            PendingBooking pending;
+            while (batch.size() < maxBatchSize && (pending = queue.pending.poll()) != null) {
+                batch.add(pending);
+            }
+            if (batch.isEmpty()) {
+                queue.inFlight.set(false);
+                continue;
+            }
+            List<BookingRequest> bookingRequests = new ArrayList<>(batch.size());
+            batch.forEach(booking -> bookingRequests.add(booking.bookingRequest));
+            bookTicket.bookBatchAsync(ticketId, bookingRequests).thenAccept(results -> {
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).result.complete(results.get(i));
+                }
+                queue.inFlight.set(false);
+                drain(ticketId, queue);
+            });
+            return;
+        }
+    }
+
+    private static class TicketQueue {
+        private final Queue<PendingBooking> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean inFlight = new AtomicBoolean();
+    }
+
+    private static class PendingBooking {
+        private final BookingRequest bookingRequest;
+        private final CompletableFuture<BookingResult> result = new CompletableFuture<>();
+
+        private PendingBooking(BookingRequest bookingRequest) {
+            this.bookingRequest = bookingRequest;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.mobycode.ticketproblem.service;
+
+import com.mobycode.ticketproblem.model.BookTicketResult;
+import com.mobycode.ticketproblem.model.BookingRequest;
+import com.mobycode.ticketproblem.model.BookingResult;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/*
+    Answers repeats of a booking (same customer, ticket and idempotency key) with the first attempt's result.
+
+    The first attempt's future is kept, so a retry that arrives while it is still in flight waits on it rather than
+    starting another booking, and one that arrives later is answered from memory without going near the ticket.
+    Entries live for a fixed time in a map bounded in size - all entries have the same time to live so the oldest is
+    always the first to go, and a queue in arrival order serves for both time and size eviction.  Results a retry
+    should try again for (busy, error) are forgotten as soon as they are known.
+ */
+@Component
+@ManagedResource(objectName = "com.mobycode.ticketproblem:type=BookingDeduplicator", description = "Repeated booking requests")
+public class BookingDeduplicator {
+
+    @Value("${ticketproblem.dedup.max-entries:1000000}")
+    private int maxEntries;
+
+    @Value("${ticketproblem.dedup.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private final ConcurrentMap<RequestKey, CompletableFuture<BookingResult>> results = new ConcurrentHashMap<>();
+    private final Queue<Remembered> arrivals = new ConcurrentLinkedQueue<>();
+    private final LongAdder repeats = new LongAdder();
+
+    /*
+        book the request unless it repeats one already seen - requests without an idempotency key are always booked
+     */
+    public CompletableFuture<BookingResult> book(BookingRequest bookingRequest,
+                                                 Function<BookingRequest, CompletableFuture<BookingResult>> booking) {
+        if (bookingRequest.getIdempotencyKey() == null) {
+            return booking.apply(bookingRequest);
+        }
+        evict(System.nanoTime());
+        RequestKey key = new RequestKey(bookingRequest.getCustomerId(), bookingRequest.getTicketId(), bookingRequest.getIdempotencyKey());
+        CompletableFuture<BookingResult> result = new CompletableFuture<>();
+        CompletableFuture<BookingResult> first = results.putIfAbsent(key, result);
+        if (first != null) {
+            repeats.increment();
+            return first;
+        }
+        arrivals.add(new Remembered(key, result, System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlSeconds)));
+        CompletableFuture<BookingResult> attempt;
+        try {
+            attempt = booking.apply(bookingRequest);
+        } catch (RuntimeException e) {
+            //forget it, as for a failed attempt, or retries would wait on a result that never comes
+            results.remove(key, result);
+            result.completeExceptionally(e);
+            return result;
+        }
+        attempt.whenComplete((bookingResult, throwable) -> {
+            if (throwable != null || isRetryable(bookingResult.getBookTicketResult())) {
+                results.remove(key, result);
+            }
+            if (throwable != null) {
+                result.completeExceptionally(throwable);
+            } else {
+                result.complete(bookingResult);
+            }
+        });
+        return result;
+    }
+
+    private static boolean isRetryable(BookTicketResult result) {
+        return result == BookTicketResult.BOOKING_ERROR
+                || result == BookTicketResult.SERVICE_BUSY
+                || result == BookTicketResult.TICKET_BUSY;
+    }
+
+    private void evict(long nowNanos) {
+        Remembered oldest;
+        while ((oldest = arrivals.peek()) != null && (oldest.expiresAtNanos - nowNanos <= 0 || results.size() > maxEntries)) {
+            //another thread may have taken it first - whatever is taken is at least as old
+            Remembered taken = arrivals.poll();
+            if (taken != null) {
+                results.remove(taken.key, taken.result);
+            }
+        }
+    }
+
+    @ManagedAttribute(description = "Booking requests remembered")
+    public int getRemembered() {
+        return results.size();
+    }
+
+    @ManagedAttribute(description = "Repeated booking requests answered with the first attempt's result")
+    public long getRepeats() {
+        return repeats.sum();
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static class RequestKey {
+        private final long customerId;
+        private final long ticketId;
+        private final String idempotencyKey;
+    }
+
+    @AllArgsConstructor
+    private static class Remembered {
+        private final RequestKey key;
+        private final CompletableFuture<BookingResult> result;
+        private final long expiresAtNanos;
+    }
+}
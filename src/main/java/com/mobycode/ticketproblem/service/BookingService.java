@@ -1,13 +1,64 @@
 package com.mobycode.ticketproblem.service;
 
+import com.mobycode.ticketproblem.model.AnyTicketRequest;
 import com.mobycode.ticketproblem.model.BookingRequest;
 import com.mobycode.ticketproblem.model.BookingResult;
+import com.mobycode.ticketproblem.model.HoldRequest;
+import com.mobycode.ticketproblem.model.PoolBookingRequest;
+import com.mobycode.ticketproblem.model.PoolBookingResult;
+import com.mobycode.ticketproblem.model.SeatBlockRequest;
+import com.mobycode.ticketproblem.model.SeatBlockResult;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 @Service
 public interface BookingService {
 
  BookingResult book(BookingRequest bookingRequest);
 
+ /*
+    results are returned in the iteration order of the requests
+  */
+ List<BookingResult> bookAll(Collection<BookingRequest> bookingRequests);
+
+ /*
+    non-blocking variant of book - no thread is held while the grid arbitrates the booking
+  */
+ CompletableFuture<BookingResult> bookAsync(BookingRequest bookingRequest);
+
+ /*
+    book a quantity of general admission tickets - all of them or none
+  */
+ PoolBookingResult bookFromPool(PoolBookingRequest poolBookingRequest);
+
+ /*
+    book the best available block of adjacent reserved seats in a section - all of them or none
+  */
+ SeatBlockResult bookSeats(SeatBlockRequest seatBlockRequest);
+
+ /*
+    book whichever of an event's free tickets is quickest to get - TICKET_NOT_AVAILABLE once the event is sold out
+  */
+ BookingResult bookAny(AnyTicketRequest anyTicketRequest);
+
+ /*
+    hold a ticket for a customer's checkout (TICKET_HELD) - nobody else can book it until the hold is confirmed,
+    released or expires
+  */
+ BookingResult hold(HoldRequest holdRequest);
+
+ /*
+    book a ticket the customer holds (TICKET_BOOKED) - HOLD_EXPIRED once its time is up
+  */
+ BookingResult confirm(BookingRequest bookingRequest);
+
+ /*
+    put a ticket the customer holds back on sale (HOLD_RELEASED)
+  */
+ BookingResult release(BookingRequest bookingRequest);
+
 
 }
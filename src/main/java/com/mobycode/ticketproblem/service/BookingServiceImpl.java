@@ -1,20 +1,319 @@
 package com.mobycode.ticketproblem.service;
 
+import com.mobycode.ticketproblem.grid.GridDataNames;
+import com.mobycode.ticketproblem.grid.affinity.TicketAffinity;
+import com.mobycode.ticketproblem.grid.customer.CustomerBookings;
+import com.mobycode.ticketproblem.grid.entryprocessor.BookAnyTicket;
+import com.mobycode.ticketproblem.grid.entryprocessor.BookFromPool;
+import com.mobycode.ticketproblem.grid.entryprocessor.BookSeats;
 import com.mobycode.ticketproblem.grid.entryprocessor.BookTicket;
+import com.mobycode.ticketproblem.grid.hold.TicketHolds;
+import com.mobycode.ticketproblem.grid.journal.BookingJournal;
+import com.mobycode.ticketproblem.grid.listener.CustomerEligibility;
+import com.mobycode.ticketproblem.grid.listener.SoldOutRegistry;
+import com.mobycode.ticketproblem.metrics.BookingInterface;
+import com.mobycode.ticketproblem.metrics.BookingMetrics;
+import com.mobycode.ticketproblem.model.AnyTicketRequest;
+import com.mobycode.ticketproblem.model.BookTicketResult;
 import com.mobycode.ticketproblem.model.BookingRequest;
 import com.mobycode.ticketproblem.model.BookingResult;
+import com.mobycode.ticketproblem.model.HoldRequest;
+import com.mobycode.ticketproblem.model.PoolBookingRequest;
+import com.mobycode.ticketproblem.model.PoolBookingResult;
+import com.mobycode.ticketproblem.model.SeatBlockRequest;
+import com.mobycode.ticketproblem.model.SeatBlockResult;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCompute;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+
+@Slf4j
 @Component
 public class BookingServiceImpl implements  BookingService {
 
     @Autowired
     private BookTicket bookTicket;
 
+    @Autowired
+    private SoldOutRegistry soldOutRegistry;
+
+    @Autowired
+    private BookingCombiner bookingCombiner;
+
+    @Autowired
+    private BookFromPool bookFromPool;
+
+    @Autowired
+    private BookSeats bookSeats;
+
+    @Autowired
+    private BookAnyTicket bookAnyTicket;
+
+    @Autowired
+    private TicketHolds ticketHolds;
+
+    @Autowired
+    private BookingMetrics bookingMetrics;
+
+    @Autowired
+    private BookingJournal bookingJournal;
+
+    @Autowired
+    private TicketAffinity ticketAffinity;
+
+    @Autowired
+    private Ignite ignite;
+
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    @Autowired
+    private BookingDeduplicator bookingDeduplicator;
+
+    @Autowired
+    private CustomerEligibility customerEligibility;
+
+    @Autowired
+    private CustomerBookings customerBookings;
+
+    //run bookings on the node that owns the ticket
+    @Value("${ticketproblem.affinity.routing.enabled:true}")
+    private boolean affinityRouting;
+
     @Override
     public BookingResult book(BookingRequest bookingRequest) {
-        return  bookTicket.book(bookingRequest);
+        return bookAsync(bookingRequest).join();
+    }
+
+    @Override
+    public CompletableFuture<BookingResult> bookAsync(BookingRequest bookingRequest) {
+        long startNanos = bookingMetrics.started(BookingInterface.SERVICE);
+        //retries carrying the idempotency key of an earlier attempt get its result
+        return bookingDeduplicator.book(bookingRequest, this::validate).whenComplete((bookingResult, throwable) ->
+                bookingMetrics.finished(BookingInterface.SERVICE,
+                        throwable == null ? bookingResult.getBookTicketResult() : BookTicketResult.BOOKING_ERROR, startNanos));
+    }
+
+    /*
+        Unknown and blocked customers never get as far as locking a ticket
+     */
+    private CompletableFuture<BookingResult> validate(BookingRequest bookingRequest) {
+        return customerEligibility.isEligible(bookingRequest.getCustomerId()).thenCompose(eligible -> eligible
+                ? arbitrate(bookingRequest)
+                : CompletableFuture.completedFuture(new BookingResult(bookingRequest, BookTicketResult.CUSTOMER_NOT_ELIGIBLE)));
+    }
+
+    private CompletableFuture<BookingResult> arbitrate(BookingRequest bookingRequest) {
+        //losers never need to reach the partition owner once the ticket is known to be taken
+        if (soldOutRegistry.isSoldOut(bookingRequest.getTicketId())) {
+            //a retry of the winning booking that reached a node which never saw the first attempt
+            BookTicketResult result = bookingRequest.getIdempotencyKey() != null
+                    && soldOutRegistry.isBookedFor(bookingRequest.getTicketId(), bookingRequest.getCustomerId())
+                    ? BookTicketResult.TICKET_BOOKED : BookTicketResult.TICKET_NOT_AVAILABLE;
+            return CompletableFuture.completedFuture(new BookingResult(bookingRequest, result));
+        }
+        //a customer with as many tickets as they may have never leaves this node
+        return customerBookings.withinLimit(bookingRequest.getTicketId(), bookingRequest.getCustomerId(), () -> route(bookingRequest));
+    }
+
+    private CompletableFuture<BookingResult> route(BookingRequest bookingRequest) {
+        if (!admissionControl.admitToNode()) {
+            return CompletableFuture.completedFuture(new BookingResult(bookingRequest, BookTicketResult.SERVICE_BUSY));
+        }
+        long startNanos = System.nanoTime();
+        CompletableFuture<BookingResult> booking = affinityRouting && !ticketAffinity.isPrimaryHere(bookingRequest.getTicketId())
+                ? forward(bookingRequest)
+                : bookHere(bookingRequest);
+        return booking.whenComplete((bookingResult, throwable) -> admissionControl.leftNode(startNanos));
+    }
+
+    /*
+        Book on this node - for tickets it owns and bookings forwarded to it by other nodes
+     */
+    public CompletableFuture<BookingResult> bookHere(BookingRequest bookingRequest) {
+        long ticketId = bookingRequest.getTicketId();
+        //the ticket's limit caps its queue in the combiner
+        if (!admissionControl.admitToTicket(ticketId)) {
+            return CompletableFuture.completedFuture(new BookingResult(bookingRequest, BookTicketResult.TICKET_BUSY));
+        }
+        long startNanos = System.nanoTime();
+        return bookingCombiner.submit(bookingRequest)
+                .whenComplete((bookingResult, throwable) -> admissionControl.leftTicket(ticketId, startNanos))
+                .thenCompose(this::journaled);
+    }
+
+    private CompletableFuture<BookingResult> forward(BookingRequest bookingRequest) {
+        CompletableFuture<BookingResult> result = new CompletableFuture<>();
+        try {
+            IgniteCompute compute = ignite.compute().withAsync();
+            compute.affinityCall(GridDataNames.MAP_TICKET.getName(), bookingRequest.getTicketId(), new ColocatedBooking(bookingRequest));
+            compute.<BookingResult>future().listen(completed -> {
+                try {
+                    result.complete(completed.get());
+                } catch (Exception e) {
+                    log.error("An error occurred forwarding the booking of ticket id:{} for customer id:{}",
+                            bookingRequest.getTicketId(), bookingRequest.getCustomerId(), e);
+                    result.complete(new BookingResult(bookingRequest, BookTicketResult.BOOKING_ERROR));
+                }
+            });
+        } catch (Exception e) {
+            log.error("An error occurred forwarding the booking of ticket id:{} for customer id:{}",
+                    bookingRequest.getTicketId(), bookingRequest.getCustomerId(), e);
+            result.complete(new BookingResult(bookingRequest, BookTicketResult.BOOKING_ERROR));
+        }
+        return result;
+    }
+
+    @Override
+    public List<BookingResult> bookAll(Collection<BookingRequest> bookingRequests) {
+        BookingResult[] results = new BookingResult[bookingRequests.size()];
+        List<BookingRequest> toBook = new ArrayList<>(bookingRequests.size());
+        List<Integer> toBookPositions = new ArrayList<>(bookingRequests.size());
+        long startNanos = System.nanoTime();
+        int position = 0;
+        for (BookingRequest bookingRequest : bookingRequests) {
+            if (!isEligible(bookingRequest.getCustomerId())) {
+                results[position] = new BookingResult(bookingRequest, BookTicketResult.CUSTOMER_NOT_ELIGIBLE);
+            } else if (soldOutRegistry.isSoldOut(bookingRequest.getTicketId())) {
+                results[position] = new BookingResult(bookingRequest, BookTicketResult.TICKET_NOT_AVAILABLE);
+            } else if (customerBookings.isAtLimit(bookingRequest.getCustomerId())) {
+                results[position] = new BookingResult(bookingRequest, BookTicketResult.CUSTOMER_LIMIT_REACHED);
+            } else if (!admissionControl.admitToNode()) {
+                results[position] = new BookingResult(bookingRequest, BookTicketResult.SERVICE_BUSY);
+            } else {
+                toBook.add(bookingRequest);
+                toBookPositions.add(position);
+            }
+            position++;
+        }
+        if (!toBook.isEmpty()) {
+            try {
+                List<BookingResult> booked = bookTicket.bookAll(toBook);
+                //journaled and recorded against their customers all at once, not a round trip per booking
+                List<CompletableFuture<BookingResult>> recorded = new ArrayList<>(booked.size());
+                booked.forEach(bookingResult -> recorded.add(journaled(bookingResult).thenCompose(customerBookings::recorded)));
+                for (int i = 0; i < booked.size(); i++) {
+                    results[toBookPositions.get(i)] = recorded.get(i).join();
+                }
+            } finally {
+                toBook.forEach(bookingRequest -> admissionControl.leftNode(startNanos));
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public PoolBookingResult bookFromPool(PoolBookingRequest poolBookingRequest) {
+        //a JSON body may leave it out - checked before it is unboxed for the eligibility check
+        if (poolBookingRequest.getCustomerId() == null) {
+            return new PoolBookingResult(poolBookingRequest, BookTicketResult.BOOKING_ERROR);
+        }
+        if (!isEligible(poolBookingRequest.getCustomerId())) {
+            return new PoolBookingResult(poolBookingRequest, BookTicketResult.CUSTOMER_NOT_ELIGIBLE);
+        }
+        if (!admissionControl.admitToNode()) {
+            return new PoolBookingResult(poolBookingRequest, BookTicketResult.SERVICE_BUSY);
+        }
+        long startNanos = System.nanoTime();
+        try {
+            return bookFromPool.book(poolBookingRequest);
+        } finally {
+            admissionControl.leftNode(startNanos);
+        }
+    }
+
+    @Override
+    public SeatBlockResult bookSeats(SeatBlockRequest seatBlockRequest) {
+        //a JSON body may leave it out - checked before it is unboxed for the eligibility check
+        if (seatBlockRequest.getCustomerId() == null) {
+            return new SeatBlockResult(seatBlockRequest, BookTicketResult.BOOKING_ERROR);
+        }
+        if (!isEligible(seatBlockRequest.getCustomerId())) {
+            return new SeatBlockResult(seatBlockRequest, BookTicketResult.CUSTOMER_NOT_ELIGIBLE);
+        }
+        return bookSeats.book(seatBlockRequest);
+    }
+
+    @Override
+    public BookingResult bookAny(AnyTicketRequest anyTicketRequest) {
+        if (!isEligible(anyTicketRequest.getCustomerId())) {
+            return new BookingResult(BookAnyTicket.NO_TICKET, anyTicketRequest.getCustomerId(), BookTicketResult.CUSTOMER_NOT_ELIGIBLE);
+        }
+        if (!admissionControl.admitToNode()) {
+            return new BookingResult(BookAnyTicket.NO_TICKET, anyTicketRequest.getCustomerId(), BookTicketResult.SERVICE_BUSY);
+        }
+        long startNanos = System.nanoTime();
+        try {
+            //the ticket isn't known until it is booked - whichever it turns out to be is recorded
+            return customerBookings.withinLimit(BookAnyTicket.NO_TICKET, anyTicketRequest.getCustomerId(),
+                    () -> journaled(bookAnyTicket.book(anyTicketRequest))).join();
+        } finally {
+            admissionControl.leftNode(startNanos);
+        }
+    }
+
+    @Override
+    public BookingResult hold(HoldRequest holdRequest) {
+        BookingRequest bookingRequest = new BookingRequest(holdRequest.getTicketId(), holdRequest.getCustomerId());
+        if (!isEligible(bookingRequest.getCustomerId())) {
+            return new BookingResult(bookingRequest, BookTicketResult.CUSTOMER_NOT_ELIGIBLE);
+        }
+        //a held ticket goes on to HoldTicket - its customer may be extending the hold
+        if (soldOutRegistry.isBooked(bookingRequest.getTicketId())) {
+            return new BookingResult(bookingRequest, BookTicketResult.TICKET_NOT_AVAILABLE);
+        }
+        if (!admissionControl.admitToNode()) {
+            return new BookingResult(bookingRequest, BookTicketResult.SERVICE_BUSY);
+        }
+        long startNanos = System.nanoTime();
+        try {
+            //held tickets count towards the customer's limit - a confirmed hold is already among their tickets
+            return customerBookings.withinLimit(bookingRequest.getTicketId(), bookingRequest.getCustomerId(),
+                    () -> CompletableFuture.completedFuture(ticketHolds.hold(bookingRequest, holdRequest.getTtlSeconds()))).join();
+        } finally {
+            admissionControl.leftNode(startNanos);
+        }
+    }
+
+    @Override
+    public BookingResult confirm(BookingRequest bookingRequest) {
+        //holds aren't journaled - a confirmed one is journaled like any other booking
+        return journaled(ticketHolds.confirm(bookingRequest)).join();
+    }
+
+    @Override
+    public BookingResult release(BookingRequest bookingRequest) {
+        return ticketHolds.release(bookingRequest);
+    }
+
+    private boolean isEligible(long customerId) {
+        return customerEligibility.isEligible(customerId).join();
+    }
+
+    /*
+        Successful bookings are only answered once they are durable in the journal
+     */
+    private CompletableFuture<BookingResult> journaled(BookingResult bookingResult) {
+        if (bookingResult.getBookTicketResult() != BookTicketResult.TICKET_BOOKED || !bookingJournal.isEnabled()) {
+            return CompletableFuture.completedFuture(bookingResult);
+        }
+        return bookingJournal.booked(bookingResult.getTicketId(), bookingResult.getCustomerId())
+                .handle((durable, throwable) -> {
+                    if (throwable != null) {
+                        //the ticket is booked on the grid regardless - the write-behind store still has it
+                        log.error("Failed to journal booking of ticket id:{} for customer id:{}",
+                                bookingResult.getTicketId(), bookingResult.getCustomerId(), throwable);
+                    }
+                    return bookingResult;
+                });
     }
 }
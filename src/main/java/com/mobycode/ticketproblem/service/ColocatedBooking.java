@@ -0,0 +1,56 @@
+package com.mobycode.ticketproblem.service;
+
+import com.mobycode.ticketproblem.model.BookingRequest;
+import com.mobycode.ticketproblem.model.BookingResult;
+import org.apache.ignite.IgniteException;
+import org.apache.ignite.compute.ComputeJobContext;
+import org.apache.ignite.lang.IgniteCallable;
+import org.apache.ignite.resources.JobContextResource;
+import org.apache.ignite.resources.SpringResource;
+
+/*
+    A booking forwarded to the node that owns its ticket (sent with affinityCall) - it is booked there so the entry
+    processor runs against local data and all of a ticket's bookings meet in one node's combiner.
+
+    The job does not wait for the booking on its public pool thread - it holds its continuation (holdcc), hands the
+    thread back and is called again (callcc) once the booking completes, when it returns the result
+ */
+public class ColocatedBooking implements IgniteCallable<BookingResult> {
+
+    private final BookingRequest bookingRequest;
+
+    @SpringResource(resourceName = "bookingServiceImpl")
+    private transient BookingServiceImpl bookingService;
+
+    @JobContextResource
+    private transient ComputeJobContext jobContext;
+
+    //set before callcc - the second call returns them
+    private transient BookingResult bookingResult;
+    private transient Throwable failure;
+    private transient volatile boolean booked;
+
+    public ColocatedBooking(BookingRequest bookingRequest) {
+        this.bookingRequest = bookingRequest;
+    }
+
+    @Override
+    public BookingResult call() {
+        if (!booked) {
+            //held before the booking starts - it may complete (and callcc) before this returns
+            jobContext.holdcc();
+            bookingService.bookHere(bookingRequest).whenComplete((result, throwable) -> {
+                bookingResult = result;
+                failure = throwable;
+                booked = true;
+                jobContext.callcc();
+            });
+            //ignored - the job is held
+            return null;
+        }
+        if (failure != null) {
+            throw new IgniteException("Booking of ticket id:" + bookingRequest.getTicketId() + " failed", failure);
+        }
+        return bookingResult;
+    }
+}
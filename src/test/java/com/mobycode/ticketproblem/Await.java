@@ -0,0 +1,34 @@
+package com.mobycode.ticketproblem;
+
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.fail;
+
+/*
+    Waiting in tests for what the grid's listeners, stores and timers do asynchronously
+ */
+public final class Await {
+
+    private static final long POLL_MILLIS = 10;
+
+    private Await() {
+    }
+
+    /*
+        Polls the condition until it holds - fails the test if it still doesn't after timeoutMillis
+     */
+    public static void awaitTrue(BooleanSupplier condition, long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() >= deadline) {
+                fail("Condition still false after " + timeoutMillis + "ms");
+            }
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Interrupted while waiting");
+            }
+        }
+    }
+}
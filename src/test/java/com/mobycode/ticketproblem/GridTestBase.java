@@ -0,0 +1,68 @@
+package com.mobycode.ticketproblem;
+
+import com.mobycode.ticketproblem.grid.InventoryLoader;
+import com.mobycode.ticketproblem.grid.listener.SoldOutRegistry;
+import com.mobycode.ticketproblem.model.Customer;
+import com.mobycode.ticketproblem.model.CustomerTickets;
+import com.mobycode.ticketproblem.model.Ticket;
+import com.mobycode.ticketproblem.service.BookingService;
+import org.apache.ignite.IgniteCache;
+import org.junit.Before;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import static com.mobycode.ticketproblem.Await.awaitTrue;
+
+/*
+    The application's Spring tests - all on the one context (same configuration and profile, so it is built once and
+    the grid node and ports are shared), each test starting from 1000 free tickets of EVENT_ID and 60000 customers
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = TicketProblemApplication.class)
+@ActiveProfiles("test")
+public abstract class GridTestBase {
+
+    protected static final long EVENT_ID = 1L;
+
+    protected final Long ticketId = 500L;
+
+    @Autowired
+    protected IgniteCache<Long, Ticket> ticketMap;
+
+    @Autowired
+    protected IgniteCache<Long, Customer> customerMap;
+
+    @Autowired
+    protected IgniteCache<Long, CustomerTickets> customerBookingsMap;
+
+    @Autowired
+    protected BookingService bookingService;
+
+    @Autowired
+    protected SoldOutRegistry soldOutRegistry;
+
+    @Autowired
+    protected InventoryLoader inventoryLoader;
+
+    @Before
+    public void clearAndFillGrid() {
+        //removeAll (unlike clear) is heard by every node's free ticket counts and count of the customers' tickets
+        ticketMap.removeAll();
+        customerMap.clear();
+        customerBookingsMap.removeAll();
+        //create 1000 tickets and 60000 customers
+        inventoryLoader.loadTickets(InventoryLoader.generateTickets(EVENT_ID, 1, 1000));
+        inventoryLoader.loadCustomers(InventoryLoader.generateCustomers(1, 60000));
+        awaitAvailableInRegistry(ticketId);
+    }
+
+    /*
+        the sold out registry is fed asynchronously - wait for the refill to reach it before booking
+     */
+    protected void awaitAvailableInRegistry(Long ticketId) {
+        awaitTrue(() -> !soldOutRegistry.isSoldOut(ticketId), 5000);
+    }
+}
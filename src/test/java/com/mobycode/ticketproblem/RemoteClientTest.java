@@ -1,6 +1,7 @@
 package com.mobycode.ticketproblem;
 
 import com.mobycode.ticketproblem.grid.GridDataNames;
+import com.mobycode.ticketproblem.grid.InventoryLoader;
 import com.mobycode.ticketproblem.grid.entryprocessor.BookTicket;
 import com.mobycode.ticketproblem.model.*;
 import lombok.extern.slf4j.Slf4j;
@@ -148,8 +149,9 @@ public class RemoteClientTest {
         customerMap.clear();
         log.debug("Finished clearing grid");
         log.debug("Start filling grid");
-        LongStream.rangeClosed(1, 1000).parallel().forEach(key -> ticketMap.put(key, new Ticket(key)));
-        LongStream.rangeClosed(1, 60000).parallel().forEach(key -> customerMap.put(key, new Customer(key)));
+        InventoryLoader inventoryLoader = new InventoryLoader(ignite);
+        inventoryLoader.loadTickets(InventoryLoader.generateTickets(1L, 1, 1000));
+        inventoryLoader.loadCustomers(InventoryLoader.generateCustomers(1, 60000));
         log.debug("Finished filling grid");
     }
 }
@@ -0,0 +1,41 @@
+package com.mobycode.ticketproblem.binary;
+
+import com.mobycode.ticketproblem.GridTestBase;
+import com.mobycode.ticketproblem.model.BookTicketResult;
+import com.mobycode.ticketproblem.model.BookingRequest;
+import com.mobycode.ticketproblem.model.BookingResult;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertEquals;
+
+public class BinaryBookingServerTest extends GridTestBase {
+
+    @Value("${ticketproblem.binary.port}")
+    private int binaryPort;
+
+    @Test
+    public void pipelinedBinaryBookingsAreEachAnsweredOnce() throws InterruptedException {
+        List<BookingRequest> requests = new ArrayList<>();
+        LongStream.rangeClosed(1, 1000).forEach(customerId -> requests.add(new BookingRequest(ticketId, customerId)));
+        try (BinaryBookingClient client = new BinaryBookingClient("127.0.0.1", binaryPort)) {
+            List<CompletableFuture<BookingResult>> results = client.bookAll(requests);
+            int booked = 0;
+            for (int i = 0; i < requests.size(); i++) {
+                BookingResult bookingResult = results.get(i).join();
+                //results arrive in any order - each must still be the answer to its own request
+                assertEquals(requests.get(i).getCustomerId(), bookingResult.getCustomerId());
+                if (bookingResult.getBookTicketResult() == BookTicketResult.TICKET_BOOKED) {
+                    booked++;
+                }
+            }
+            assertEquals(1, booked);
+            assertEquals(0, client.getInFlight());
+        }
+    }
+}
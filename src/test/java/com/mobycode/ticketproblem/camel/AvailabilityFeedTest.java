@@ -0,0 +1,74 @@
+package com.mobycode.ticketproblem.camel;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mobycode.ticketproblem.GridTestBase;
+import com.mobycode.ticketproblem.model.BookTicketResult;
+import com.mobycode.ticketproblem.model.BookingRequest;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.net.URI;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+/*
+    A websocket client follows an event through the feed - the same connection a browser would make
+ */
+public class AvailabilityFeedTest extends GridTestBase {
+
+    @Value("${ticketproblem.feed.host}")
+    private String feedHost;
+
+    @Value("${ticketproblem.feed.port}")
+    private int feedPort;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void subscribersArePushedTheFreeCountAsItChanges() throws Exception {
+        BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+        WebSocketClient client = new WebSocketClient();
+        client.start();
+        try {
+            Session session = client.connect(new WebSocketAdapter() {
+                @Override
+                public void onWebSocketText(String message) {
+                    messages.add(message);
+                }
+            }, new URI("ws://" + feedHost + ":" + feedPort + "/availability")).get(5, TimeUnit.SECONDS);
+            session.getRemote().sendString(String.valueOf(EVENT_ID));
+
+            //the current count straight away
+            JsonNode subscribed = next(messages);
+            assertEquals(EVENT_ID, subscribed.get("eventId").asLong());
+            assertEquals(1000, subscribed.get("free").asLong());
+            assertFalse(subscribed.get("soldOut").asBoolean());
+
+            //then the count once a booking changes it - a push of the earlier count may come first
+            assertEquals(BookTicketResult.TICKET_BOOKED, bookingService.book(new BookingRequest(ticketId, 1L)).getBookTicketResult());
+            JsonNode pushed = next(messages);
+            while (pushed.get("free").asLong() == 1000) {
+                pushed = next(messages);
+            }
+            assertEquals(EVENT_ID, pushed.get("eventId").asLong());
+            assertEquals(999, pushed.get("free").asLong());
+        } finally {
+            client.stop();
+        }
+    }
+
+    private JsonNode next(BlockingQueue<String> messages) throws Exception {
+        String message = messages.poll(5, TimeUnit.SECONDS);
+        assertNotNull("no availability pushed", message);
+        return objectMapper.readTree(message);
+    }
+}
@@ -0,0 +1,63 @@
+package com.mobycode.ticketproblem.camel;
+
+import com.mobycode.ticketproblem.GridTestBase;
+import com.mobycode.ticketproblem.model.BookTicketResult;
+import com.mobycode.ticketproblem.model.BookingRequest;
+import com.mobycode.ticketproblem.model.BookingResult;
+import com.mobycode.ticketproblem.model.PoolBookingRequest;
+import com.mobycode.ticketproblem.model.PoolBookingResult;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultExchange;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class BusyResponseTest extends GridTestBase {
+
+    @Autowired
+    private BusyResponse busyResponse;
+
+    @Autowired
+    private CamelContext camelContext;
+
+    @Test
+    public void bookingsTurnedAwayAreAnsweredBusyWithARetryAfter() {
+        Exchange pool = answer(new PoolBookingResult(new PoolBookingRequest(EVENT_ID, 1L, 2), BookTicketResult.SERVICE_BUSY));
+        assertEquals(503, pool.getIn().getHeader(Exchange.HTTP_RESPONSE_CODE));
+        assertNotNull(pool.getIn().getHeader("Retry-After"));
+
+        Exchange ticket = answer(result(BookTicketResult.TICKET_BUSY));
+        assertEquals(429, ticket.getIn().getHeader(Exchange.HTTP_RESPONSE_CODE));
+
+        Exchange booked = answer(result(BookTicketResult.TICKET_BOOKED));
+        assertNull(booked.getIn().getHeader(Exchange.HTTP_RESPONSE_CODE));
+        assertNull(booked.getIn().getHeader("Retry-After"));
+    }
+
+    @Test
+    public void aBatchIsOnlyBusyWhenAllOfItWasTurnedAway() {
+        Exchange partly = answer(Arrays.asList(result(BookTicketResult.TICKET_BOOKED), result(BookTicketResult.SERVICE_BUSY)));
+        assertNull(partly.getIn().getHeader(Exchange.HTTP_RESPONSE_CODE));
+        assertNotNull(partly.getIn().getHeader("Retry-After"));
+
+        Exchange all = answer(Arrays.asList(result(BookTicketResult.TICKET_BUSY), result(BookTicketResult.SERVICE_BUSY)));
+        assertEquals(503, all.getIn().getHeader(Exchange.HTTP_RESPONSE_CODE));
+    }
+
+    private Exchange answer(Object body) {
+        Exchange exchange = new DefaultExchange(camelContext);
+        exchange.getIn().setBody(body);
+        busyResponse.process(exchange);
+        return exchange;
+    }
+
+    private BookingResult result(BookTicketResult bookTicketResult) {
+        return new BookingResult(new BookingRequest(ticketId, 1L), bookTicketResult);
+    }
+}
@@ -0,0 +1,52 @@
+package com.mobycode.ticketproblem.cluster;
+
+import com.mobycode.ticketproblem.model.BookingRequest;
+import com.mobycode.ticketproblem.model.BookingResult;
+import com.mobycode.ticketproblem.service.BookingService;
+import org.apache.ignite.IgniteException;
+import org.apache.ignite.compute.ComputeJobContext;
+import org.apache.ignite.lang.IgniteCallable;
+import org.apache.ignite.resources.JobContextResource;
+import org.apache.ignite.resources.SpringResource;
+
+/*
+    A booking sent by a client node to the server that owns its ticket (affinityCall) - booked there through the
+    server's BookingService, so it is checked and combined as an HTTP booking would be without the extra hop.  Held
+    (holdcc) rather than waited for, like ColocatedBooking
+ */
+class ClientBooking implements IgniteCallable<BookingResult> {
+
+    private final BookingRequest bookingRequest;
+
+    @SpringResource(resourceName = "bookingServiceImpl")
+    private transient BookingService bookingService;
+
+    @JobContextResource
+    private transient ComputeJobContext jobContext;
+
+    private transient BookingResult bookingResult;
+    private transient Throwable failure;
+    private transient volatile boolean booked;
+
+    ClientBooking(BookingRequest bookingRequest) {
+        this.bookingRequest = bookingRequest;
+    }
+
+    @Override
+    public BookingResult call() {
+        if (!booked) {
+            jobContext.holdcc();
+            bookingService.bookAsync(bookingRequest).whenComplete((result, throwable) -> {
+                bookingResult = result;
+                failure = throwable;
+                booked = true;
+                jobContext.callcc();
+            });
+            return null;
+        }
+        if (failure != null) {
+            throw new IgniteException("Booking of ticket id:" + bookingRequest.getTicketId() + " failed", failure);
+        }
+        return bookingResult;
+    }
+}
@@ -0,0 +1,199 @@
+package com.mobycode.ticketproblem.cluster;
+
+import com.mobycode.ticketproblem.TicketProblemApplication;
+import com.mobycode.ticketproblem.grid.GridDataNames;
+import com.mobycode.ticketproblem.grid.InventoryLoader;
+import com.mobycode.ticketproblem.model.BookingRequest;
+import com.mobycode.ticketproblem.model.BookingResult;
+import com.mobycode.ticketproblem.model.Ticket;
+import com.mobycode.ticketproblem.service.BookingService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.IgniteCompute;
+import org.apache.ignite.Ignition;
+import org.apache.ignite.configuration.IgniteConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/*
+    N server nodes of the application in this JVM - each a Spring context of TicketProblemApplication, so bookings take
+    the production path through BookingServiceImpl (eligibility, the sold out registry, affinity routing, the combiner)
+    - and M client nodes, bare Ignite clients that send bookings to the servers (see ClientBooking).
+
+    Each node has its own grid name and its own ports for the HTTP, binary and feed interfaces.  Discovery is the
+    application's own, so the nodes find each other - and would find the node of the Spring tests, which is why these
+    tests only run on their own (mvn -Pcluster verify).  The store and the journal are off: a node restarted mid-run
+    would load or replay its own stale copy of the tickets over the live ones.  Admission control is off so every
+    booking is answered booked or not available.
+ */
+@Slf4j
+public class ClusterHarness implements AutoCloseable {
+
+    public static final long EVENT_ID = 1L;
+
+    private static final int REST_PORT = 18080;
+    private static final int BINARY_PORT = 18180;
+    private static final int FEED_PORT = 18280;
+
+    private final String clusterName;
+    private final ConfigurableApplicationContext[] nodes;
+    private final Ignite[] clients;
+
+    public ClusterHarness(String clusterName, int numberOfNodes, int numberOfClients) {
+        this.clusterName = clusterName;
+        this.nodes = new ConfigurableApplicationContext[numberOfNodes];
+        this.clients = new Ignite[numberOfClients];
+        try {
+            for (int i = 0; i < numberOfNodes; i++) {
+                startNode(i);
+            }
+            for (int i = 0; i < numberOfClients; i++) {
+                startClient(i);
+            }
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+        log.info("Started cluster {} with {} nodes and {} clients", clusterName, numberOfNodes, numberOfClients);
+    }
+
+    public int getNumberOfNodes() {
+        return nodes.length;
+    }
+
+    public int getNumberOfClients() {
+        return clients.length;
+    }
+
+    /*
+        null while the node is down
+     */
+    public BookingService bookingService(int node) {
+        ConfigurableApplicationContext context = nodes[node];
+        return context == null ? null : context.getBean(BookingService.class);
+    }
+
+    /*
+        Book from a client node - sent to the server that owns the ticket, which may fail it over to the new owner
+        if it is killed meanwhile
+     */
+    public CompletableFuture<BookingResult> bookThroughClient(int client, BookingRequest bookingRequest) {
+        CompletableFuture<BookingResult> result = new CompletableFuture<>();
+        try {
+            IgniteCompute compute = clients[client].compute().withAsync();
+            compute.affinityCall(GridDataNames.MAP_TICKET.getName(), bookingRequest.getTicketId(), new ClientBooking(bookingRequest));
+            compute.<BookingResult>future().listen(completed -> {
+                try {
+                    result.complete(completed.get());
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    public IgniteCache<Long, Ticket> ticketMap() {
+        return liveNode().getBean("ticketMap", IgniteCache.class);
+    }
+
+    public void fill(long numberOfTickets, long numberOfCustomers) {
+        InventoryLoader inventoryLoader = liveNode().getBean(InventoryLoader.class);
+        inventoryLoader.loadTickets(InventoryLoader.generateTickets(EVENT_ID, 1, numberOfTickets));
+        inventoryLoader.loadCustomers(InventoryLoader.generateCustomers(1, numberOfCustomers));
+    }
+
+    /*
+        Stop the node's grid at once - bookings it was running fail or are retried on the new primary - then the
+        rest of its context
+     */
+    public void killNode(int node) {
+        Ignition.stop(gridName(node), true);
+        ConfigurableApplicationContext context = nodes[node];
+        nodes[node] = null;
+        try {
+            context.close();
+        } catch (RuntimeException e) {
+            log.debug("Node {} of cluster {} complained while stopping without its grid", node, clusterName, e);
+        }
+        log.info("Killed node {} of cluster {}", node, clusterName);
+    }
+
+    /*
+        Start the node again and wait for its share of the tickets to be rebalanced to it
+     */
+    public void restartNode(int node) {
+        startNode(node);
+        nodes[node].getBean(Ignite.class).cache(GridDataNames.MAP_TICKET.getName()).rebalance().get();
+        log.info("Restarted node {} of cluster {}", node, clusterName);
+    }
+
+    @Override
+    public void close() {
+        for (int i = 0; i < clients.length; i++) {
+            if (clients[i] != null) {
+                clients[i].close();
+                clients[i] = null;
+            }
+        }
+        for (int i = 0; i < nodes.length; i++) {
+            if (nodes[i] != null) {
+                nodes[i].close();
+                nodes[i] = null;
+            }
+        }
+    }
+
+    private ConfigurableApplicationContext liveNode() {
+        for (ConfigurableApplicationContext node : nodes) {
+            if (node != null) {
+                return node;
+            }
+        }
+        throw new IllegalStateException("No node of cluster " + clusterName + " is running");
+    }
+
+    private String gridName(int node) {
+        return clusterName + "-" + node;
+    }
+
+    /*
+        Discovery as the servers have it, so the clients find them
+     */
+    private void startClient(int client) {
+        IgniteConfiguration cfg = new IgniteConfiguration();
+        cfg.setGridName(clusterName + "-client-" + client);
+        cfg.setClientMode(true);
+        clients[client] = Ignition.start(cfg);
+        //the client learns the ticket map's affinity before the first booking
+        clients[client].cache(GridDataNames.MAP_TICKET.getName());
+    }
+
+    /*
+        Command line arguments - they take precedence over application.properties
+     */
+    private void startNode(int node) {
+        List<String> args = new ArrayList<>();
+        args.add("--ticketproblem.grid-name=" + gridName(node));
+        args.add("--ticketproblem.rest.port=" + (REST_PORT + node));
+        args.add("--ticketproblem.binary.port=" + (BINARY_PORT + node));
+        args.add("--ticketproblem.feed.port=" + (FEED_PORT + node));
+        args.add("--ticketproblem.store.enabled=false");
+        args.add("--ticketproblem.journal.enabled=false");
+        args.add("--ticketproblem.admission.enabled=false");
+        //every node's MBeans would have the same names
+        args.add("--spring.jmx.enabled=false");
+        args.add("--camel.springboot.jmx-enabled=false");
+        nodes[node] = new SpringApplicationBuilder(TicketProblemApplication.class)
+                .web(false)
+                .run(args.toArray(new String[args.size()]));
+    }
+}
@@ -0,0 +1,198 @@
+package com.mobycode.ticketproblem.cluster;
+
+import com.mobycode.ticketproblem.model.BookTicketResult;
+import com.mobycode.ticketproblem.model.BookingRequest;
+import com.mobycode.ticketproblem.model.BookingResult;
+import com.mobycode.ticketproblem.model.Ticket;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.apache.ignite.IgniteCache;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/*
+    The booking workload against in-JVM clusters of application nodes of growing size (see ClusterHarness).
+
+    Every customer tries to book one ticket, the tickets taken in turn, sent from each client node in turn - so
+    bookings are checked for eligibility, turned away by the sold out registry and booked on the ticket's owner as
+    they are in production.  With no client nodes they go through the BookingService of each server in turn instead.
+    Throughput and latency are logged for each cluster size.  All nodes share this machine's cores so the numbers
+    show how the work spreads over partitions rather than what separate servers would do - nothing is asserted about
+    them.  Server counts are taken from -Dcluster.servers (default 1,2,4), the client count from -Dcluster.clients
+    (default 2).
+
+    Run with mvn -Pcluster verify - too heavy for every build, and the nodes must not meet the Spring tests' node
+ */
+@Slf4j
+public class ClusterScalingIT {
+
+    private static final int NUMBER_OF_TICKETS = 1000;
+    private static final int NUMBER_OF_CUSTOMERS = 60000;
+    //bookings in flight per sending node
+    private static final int MAX_IN_FLIGHT = 1000;
+    private static final int NUMBER_OF_CLIENTS = Integer.getInteger("cluster.clients", 2);
+
+    @Test
+    public void bookingThroughputAsServersAreAdded() throws InterruptedException {
+        List<String> report = new ArrayList<>();
+        for (String servers : System.getProperty("cluster.servers", "1,2,4").split(",")) {
+            int numberOfServers = Integer.parseInt(servers.trim());
+            try (ClusterHarness cluster = new ClusterHarness("scaling-" + numberOfServers, numberOfServers, NUMBER_OF_CLIENTS)) {
+                cluster.fill(NUMBER_OF_TICKETS, NUMBER_OF_CUSTOMERS);
+                Workload workload = new Workload(cluster);
+                long start = System.nanoTime();
+                workload.run(() -> {
+                });
+                long elapsedNanos = System.nanoTime() - start;
+                workload.checkExactlyOneBookingPerTicket(cluster.ticketMap());
+                assertEquals(0, workload.count(BookTicketResult.BOOKING_ERROR));
+                report.add(String.format("%d servers, %d clients: %,.0f bookings/s, latency micros p50 %d p99 %d p99.9 %d max %d",
+                        numberOfServers,
+                        NUMBER_OF_CLIENTS,
+                        NUMBER_OF_CUSTOMERS / (elapsedNanos / 1e9),
+                        workload.latencies.getValueAtPercentile(50),
+                        workload.latencies.getValueAtPercentile(99),
+                        workload.latencies.getValueAtPercentile(99.9),
+                        workload.latencies.getMaxValue()));
+            }
+        }
+        log.info("{} customers booking {} tickets:\n{}", NUMBER_OF_CUSTOMERS, NUMBER_OF_TICKETS, String.join("\n", report));
+    }
+
+    @Test
+    public void ticketsAreBookedOnceWhenAServerIsKilledAndRestartedMidRun() throws InterruptedException {
+        try (ClusterHarness cluster = new ClusterHarness("failover", 3, NUMBER_OF_CLIENTS)) {
+            cluster.fill(NUMBER_OF_TICKETS, NUMBER_OF_CUSTOMERS);
+            Workload workload = new Workload(cluster);
+            //a third of the way through
+            workload.run(() -> {
+                cluster.killNode(1);
+                cluster.restartNode(1);
+            });
+            workload.checkExactlyOneBookingPerTicket(cluster.ticketMap());
+            log.info("Bookings with a server killed and restarted: {}", workload.counts());
+        }
+    }
+
+    /*
+        One booking per customer, sent from the clients (or without clients, the servers) in turn without waiting
+        for results (up to MAX_IN_FLIGHT per sender) - a server that is down is passed over
+     */
+    private static class Workload {
+
+        private final ClusterHarness cluster;
+        private final List<Semaphore> inFlight = new ArrayList<>();
+        private final Histogram latencies = new Histogram(TimeUnit.MINUTES.toMicros(1), 3);
+        private final ConcurrentMap<BookTicketResult, AtomicInteger> counts = new ConcurrentHashMap<>();
+        //ticket id -> customer told TICKET_BOOKED (a second one fails the check)
+        private final ConcurrentMap<Long, Long> winners = new ConcurrentHashMap<>();
+        private final AtomicInteger doubleBookings = new AtomicInteger();
+
+        Workload(ClusterHarness cluster) {
+            this.cluster = cluster;
+            for (int i = 0; i < numberOfSenders(); i++) {
+                inFlight.add(new Semaphore(MAX_IN_FLIGHT));
+            }
+        }
+
+        /*
+            midRun is run on the sending thread a third of the way through
+         */
+        void run(Runnable midRun) throws InterruptedException {
+            CountDownLatch finished = new CountDownLatch(NUMBER_OF_CUSTOMERS);
+            for (long customerId = 1; customerId <= NUMBER_OF_CUSTOMERS; customerId++) {
+                if (customerId == NUMBER_OF_CUSTOMERS / 3) {
+                    midRun.run();
+                }
+                int sender = sender(customerId);
+                long ticketId = customerId % NUMBER_OF_TICKETS + 1;
+                Semaphore senderInFlight = inFlight.get(sender);
+                senderInFlight.acquire();
+                long startNanos = System.nanoTime();
+                BookingRequest bookingRequest = new BookingRequest(ticketId, customerId);
+                send(sender, bookingRequest).whenComplete((bookingResult, throwable) -> {
+                    record(throwable == null ? bookingResult : new BookingResult(bookingRequest, BookTicketResult.BOOKING_ERROR), startNanos);
+                    senderInFlight.release();
+                    finished.countDown();
+                });
+            }
+            assertTrue("bookings still in flight", finished.await(5, TimeUnit.MINUTES));
+        }
+
+        private int numberOfSenders() {
+            return cluster.getNumberOfClients() > 0 ? cluster.getNumberOfClients() : cluster.getNumberOfNodes();
+        }
+
+        private int sender(long customerId) {
+            int sender = (int) (customerId % numberOfSenders());
+            if (cluster.getNumberOfClients() == 0) {
+                while (cluster.bookingService(sender) == null) {
+                    sender = (sender + 1) % cluster.getNumberOfNodes();
+                }
+            }
+            return sender;
+        }
+
+        private CompletableFuture<BookingResult> send(int sender, BookingRequest bookingRequest) {
+            return cluster.getNumberOfClients() > 0
+                    ? cluster.bookThroughClient(sender, bookingRequest)
+                    : cluster.bookingService(sender).bookAsync(bookingRequest);
+        }
+
+        private void record(BookingResult bookingResult, long startNanos) {
+            synchronized (latencies) {
+                latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos),
+                        latencies.getHighestTrackableValue()));
+            }
+            counts.computeIfAbsent(bookingResult.getBookTicketResult(), result -> new AtomicInteger()).incrementAndGet();
+            if (bookingResult.getBookTicketResult() == BookTicketResult.TICKET_BOOKED
+                    && winners.putIfAbsent(bookingResult.getTicketId(), bookingResult.getCustomerId()) != null) {
+                doubleBookings.incrementAndGet();
+            }
+        }
+
+        int count(BookTicketResult result) {
+            AtomicInteger count = counts.get(result);
+            return count == null ? 0 : count.get();
+        }
+
+        Map<BookTicketResult, Integer> counts() {
+            Map<BookTicketResult, Integer> snapshot = new HashMap<>();
+            counts.forEach((result, count) -> snapshot.put(result, count.get()));
+            return snapshot;
+        }
+
+        /*
+            No ticket was confirmed to two customers, every ticket ended up sold, and to the customer who was told
+            so.  A winner whose answer was lost with a killed node (BOOKING_ERROR) still owns the ticket - it just
+            never heard
+         */
+        void checkExactlyOneBookingPerTicket(IgniteCache<Long, Ticket> ticketMap) {
+            assertEquals(0, doubleBookings.get());
+            for (long ticketId = 1; ticketId <= NUMBER_OF_TICKETS; ticketId++) {
+                Ticket ticket = ticketMap.get(ticketId);
+                assertFalse("ticket " + ticketId + " was never sold", ticket.isAvailable());
+                Long winner = winners.get(ticketId);
+                if (winner != null) {
+                    assertEquals("owner of ticket " + ticketId, winner.longValue(), ticket.getCustomerReference());
+                }
+            }
+            log.info("{} of {} tickets confirmed to their owner", winners.size(), NUMBER_OF_TICKETS);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.mobycode.ticketproblem.grid.configuration;
+
+import com.mobycode.ticketproblem.grid.GridDataNames;
+import com.mobycode.ticketproblem.grid.entryprocessor.BookTicketSingle;
+import com.mobycode.ticketproblem.grid.store.TicketCacheStore;
+import com.mobycode.ticketproblem.grid.store.TicketStoreProperties;
+import com.mobycode.ticketproblem.model.BookTicketResult;
+import com.mobycode.ticketproblem.model.Ticket;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.Ignition;
+import org.apache.ignite.configuration.IgniteConfiguration;
+import org.apache.ignite.spi.communication.tcp.TcpCommunicationSpi;
+import org.apache.ignite.spi.discovery.tcp.TcpDiscoverySpi;
+import org.apache.ignite.spi.discovery.tcp.ipfinder.vm.TcpDiscoveryVmIpFinder;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.stream.LongStream;
+
+import static com.mobycode.ticketproblem.Await.awaitTrue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/*
+    A node started with the ticket map configured as GridConfiguration configures it gets back the tickets (and
+    bookings) a previous node wrote behind to the store.  A bare node on its own discovery ports, so it never joins
+    the node the Spring tests start in the same JVM
+ */
+public class TicketStoreRestartTest {
+
+    private static final int DISCOVERY_PORT = 48600;
+    private static final int COMMUNICATION_PORT = 48300;
+    private static final long TICKETS = 100;
+    private static final long BOOKED_TICKET = 7L;
+    private static final long CUSTOMER_ID = 42L;
+
+    @Test
+    public void ticketsAreReloadedFromTheStoreAfterARestart() {
+        TicketStoreProperties store = new TicketStoreProperties();
+        store.setEnabled(true);
+        store.setUrl("jdbc:h2:file:./target/ticket-store-restart-" + System.currentTimeMillis() + "/tickets");
+        store.getWriteBehind().setFlushFrequencyMillis(100);
+
+        try (Ignite ignite = start(store)) {
+            IgniteCache<Long, Ticket> ticketMap = ignite.cache(GridDataNames.MAP_TICKET.getName());
+            LongStream.rangeClosed(1, TICKETS).forEach(ticketId -> ticketMap.put(ticketId, new Ticket(ticketId, 1L)));
+            assertEquals(BookTicketResult.TICKET_BOOKED,
+                    ticketMap.invoke(BOOKED_TICKET, new BookTicketSingle(BOOKED_TICKET, CUSTOMER_ID)).getBookTicketResult());
+            //written behind - wait for the booking to reach the database
+            TicketCacheStore reader = new TicketCacheStore(store.getUrl(), store.getUser(), store.getPassword());
+            awaitTrue(() -> isBooked(reader.load(BOOKED_TICKET)), 10000);
+        }
+
+        try (Ignite ignite = start(store)) {
+            GridConfiguration.loadTickets(ignite);
+            IgniteCache<Long, Ticket> ticketMap = ignite.cache(GridDataNames.MAP_TICKET.getName());
+            assertEquals(TICKETS, ticketMap.sizeLong());
+            Ticket booked = ticketMap.get(BOOKED_TICKET);
+            assertFalse(booked.isAvailable());
+            assertEquals(CUSTOMER_ID, booked.getCustomerReference());
+            assertTrue(ticketMap.get(BOOKED_TICKET + 1).isAvailable());
+        }
+    }
+
+    private static boolean isBooked(Ticket ticket) {
+        return ticket != null && !ticket.isAvailable();
+    }
+
+    private static Ignite start(TicketStoreProperties store) {
+        TcpDiscoveryVmIpFinder ipFinder = new TcpDiscoveryVmIpFinder();
+        ipFinder.setAddresses(Collections.singletonList("127.0.0.1:" + DISCOVERY_PORT));
+        TcpDiscoverySpi discoverySpi = new TcpDiscoverySpi();
+        discoverySpi.setIpFinder(ipFinder);
+        discoverySpi.setLocalAddress("127.0.0.1");
+        discoverySpi.setLocalPort(DISCOVERY_PORT);
+        discoverySpi.setLocalPortRange(1);
+        TcpCommunicationSpi communicationSpi = new TcpCommunicationSpi();
+        communicationSpi.setLocalAddress("127.0.0.1");
+        communicationSpi.setLocalPort(COMMUNICATION_PORT);
+        IgniteConfiguration cfg = new IgniteConfiguration();
+        cfg.setGridName("ticket-store-restart");
+        cfg.setDiscoverySpi(discoverySpi);
+        cfg.setCommunicationSpi(communicationSpi);
+        cfg.setCacheConfiguration(GridConfiguration.ticketCacheConfiguration(new GridStorageProperties(), store));
+        return Ignition.start(cfg);
+    }
+}
@@ -0,0 +1,78 @@
+package com.mobycode.ticketproblem.grid.customer;
+
+import com.mobycode.ticketproblem.GridTestBase;
+import com.mobycode.ticketproblem.model.BookTicketResult;
+import com.mobycode.ticketproblem.model.BookingRequest;
+import com.mobycode.ticketproblem.model.BookingResult;
+import com.mobycode.ticketproblem.model.Ticket;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.mobycode.ticketproblem.Await.awaitTrue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CustomerBookingsTest extends GridTestBase {
+
+    @Autowired
+    private CustomerBookings customerBookings;
+
+    @Value("${ticketproblem.customer.max-tickets}")
+    private int maxTickets;
+
+    @Test
+    public void customersCannotBookBeyondTheirLimit() {
+        final long customerId = 1L;
+        for (long ticket = 1; ticket <= maxTickets; ticket++) {
+            assertEquals(BookTicketResult.TICKET_BOOKED, bookingService.book(new BookingRequest(ticket, customerId)).getBookTicketResult());
+        }
+        final long oneTooMany = maxTickets + 1;
+        assertEquals(BookTicketResult.CUSTOMER_LIMIT_REACHED, bookingService.book(new BookingRequest(oneTooMany, customerId)).getBookTicketResult());
+        assertTrue(ticketMap.get(oneTooMany).isAvailable());
+        assertEquals(maxTickets, customerBookings.ticketsOf(customerId).getTicketIds().size());
+        assertTrue(customerBookings.ticketsOf(customerId).contains(1L));
+
+        //cancel one - the customer's tickets, then this node's count of them, hear of it asynchronously
+        ticketMap.put(1L, new Ticket(1L, EVENT_ID));
+        awaitTrue(() -> customerBookings.ticketCount(customerId) < maxTickets, 5000);
+        assertFalse(customerBookings.ticketsOf(customerId).contains(1L));
+        assertEquals(BookTicketResult.TICKET_BOOKED, bookingService.book(new BookingRequest(oneTooMany, customerId)).getBookTicketResult());
+        assertTrue(customerBookings.ticketsOf(customerId).contains(oneTooMany));
+    }
+
+    @Test
+    public void concurrentBookingsOneShortOfTheLimitGetOneTicketAndGiveTheRestBack() {
+        final long customerId = 2L;
+        for (long ticket = 1; ticket < maxTickets; ticket++) {
+            assertEquals(BookTicketResult.TICKET_BOOKED, bookingService.book(new BookingRequest(ticket, customerId)).getBookTicketResult());
+        }
+        awaitTrue(() -> customerBookings.ticketCount(customerId) == maxTickets - 1, 5000);
+
+        //all pass this node's count, only the customer's tickets can turn them away
+        final long firstRacer = 100;
+        final int racers = 20;
+        List<CompletableFuture<BookingResult>> bookings = new ArrayList<>();
+        for (long ticket = firstRacer; ticket < firstRacer + racers; ticket++) {
+            bookings.add(bookingService.bookAsync(new BookingRequest(ticket, customerId)));
+        }
+        int booked = 0;
+        for (CompletableFuture<BookingResult> booking : bookings) {
+            BookingResult bookingResult = booking.join();
+            if (bookingResult.getBookTicketResult() == BookTicketResult.TICKET_BOOKED) {
+                booked++;
+            } else {
+                assertEquals(BookTicketResult.CUSTOMER_LIMIT_REACHED, bookingResult.getBookTicketResult());
+                //given back before the booking was answered
+                assertTrue(ticketMap.get(bookingResult.getTicketId()).isAvailable());
+            }
+        }
+        assertEquals(1, booked);
+        assertEquals(maxTickets, customerBookings.ticketsOf(customerId).count());
+    }
+}
@@ -0,0 +1,46 @@
+package com.mobycode.ticketproblem.grid.hold;
+
+import com.mobycode.ticketproblem.GridTestBase;
+import com.mobycode.ticketproblem.model.BookTicketResult;
+import com.mobycode.ticketproblem.model.BookingRequest;
+import com.mobycode.ticketproblem.model.HoldRequest;
+import org.junit.Test;
+
+import static com.mobycode.ticketproblem.Await.awaitTrue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TicketHoldsTest extends GridTestBase {
+
+    @Test
+    public void heldTicketIsBookedOnlyByConfirmingTheHold() {
+        assertEquals(BookTicketResult.TICKET_HELD, bookingService.hold(new HoldRequest(ticketId, 1L, null)).getBookTicketResult());
+        assertEquals(BookTicketResult.TICKET_NOT_AVAILABLE, bookingService.book(new BookingRequest(ticketId, 2L)).getBookTicketResult());
+        assertEquals(BookTicketResult.HOLD_NOT_FOUND, bookingService.confirm(new BookingRequest(ticketId, 2L)).getBookTicketResult());
+        assertEquals(BookTicketResult.TICKET_BOOKED, bookingService.confirm(new BookingRequest(ticketId, 1L)).getBookTicketResult());
+        assertEquals(BookTicketResult.HOLD_NOT_FOUND, bookingService.release(new BookingRequest(ticketId, 1L)).getBookTicketResult());
+        assertFalse(ticketMap.get(ticketId).isAvailable());
+    }
+
+    @Test
+    public void holdingAgainExtendsTheHold() {
+        assertEquals(BookTicketResult.TICKET_HELD, bookingService.hold(new HoldRequest(ticketId, 1L, 1L)).getBookTicketResult());
+        long expiresAt = ticketMap.get(ticketId).getHoldExpiresAt();
+        //once this node knows the ticket is taken - the hold must still get past it
+        awaitTrue(() -> soldOutRegistry.isSoldOut(ticketId), 5000);
+        assertEquals(BookTicketResult.TICKET_HELD, bookingService.hold(new HoldRequest(ticketId, 1L, 600L)).getBookTicketResult());
+        assertTrue(ticketMap.get(ticketId).getHoldExpiresAt() > expiresAt);
+        assertEquals(BookTicketResult.TICKET_NOT_AVAILABLE, bookingService.hold(new HoldRequest(ticketId, 2L, 600L)).getBookTicketResult());
+        assertEquals(BookTicketResult.TICKET_BOOKED, bookingService.confirm(new BookingRequest(ticketId, 1L)).getBookTicketResult());
+    }
+
+    @Test
+    public void abandonedHoldGoesBackOnSale() {
+        assertEquals(BookTicketResult.TICKET_HELD, bookingService.hold(new HoldRequest(ticketId, 1L, 1L)).getBookTicketResult());
+        assertFalse(ticketMap.get(ticketId).isAvailable());
+        //one second to live, a tick of slack and the expiry invoke
+        awaitTrue(() -> ticketMap.get(ticketId).isAvailable(), 3000);
+        assertEquals(BookTicketResult.HOLD_NOT_FOUND, bookingService.confirm(new BookingRequest(ticketId, 1L)).getBookTicketResult());
+    }
+}
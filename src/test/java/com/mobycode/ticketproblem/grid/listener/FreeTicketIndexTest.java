@@ -0,0 +1,56 @@
+package com.mobycode.ticketproblem.grid.listener;
+
+import com.mobycode.ticketproblem.GridTestBase;
+import com.mobycode.ticketproblem.model.AvailableTickets;
+import com.mobycode.ticketproblem.model.BookTicketResult;
+import com.mobycode.ticketproblem.model.BookingRequest;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+
+import static com.mobycode.ticketproblem.Await.awaitTrue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class FreeTicketIndexTest extends GridTestBase {
+
+    @Autowired
+    private FreeTicketIndex freeTicketIndex;
+
+    @Test
+    public void freeTicketsArePagedInIdOrderAndCounted() {
+        assertEquals(BookTicketResult.TICKET_BOOKED, bookingService.book(new BookingRequest(ticketId, 1L)).getBookTicketResult());
+
+        AvailableTickets firstPage = freeTicketIndex.page(EVENT_ID, null, 100);
+        assertEquals(100, firstPage.getTicketIds().size());
+        assertEquals(Long.valueOf(1), firstPage.getTicketIds().get(0));
+        assertEquals(Long.valueOf(100), firstPage.getNextAfter());
+        //the booked ticket is skipped
+        assertEquals(Arrays.asList(499L, 501L), freeTicketIndex.page(EVENT_ID, 498L, 2).getTicketIds());
+        AvailableTickets lastPage = freeTicketIndex.page(EVENT_ID, 990L, 100);
+        assertNull(lastPage.getNextAfter());
+        //only the first page is counted
+        assertNull(lastPage.getFree());
+
+        //counts follow the grid asynchronously
+        awaitTrue(() -> freeTicketIndex.freeCount(EVENT_ID) == 999, 5000);
+    }
+
+    @Test
+    public void bookingsTellChangeListenersWhichEventChanged() {
+        Set<Long> changedEvents = ConcurrentHashMap.newKeySet();
+        LongConsumer changeListener = changedEvents::add;
+        freeTicketIndex.addChangeListener(changeListener);
+        try {
+            assertEquals(BookTicketResult.TICKET_BOOKED, bookingService.book(new BookingRequest(ticketId, 1L)).getBookTicketResult());
+            awaitTrue(() -> changedEvents.contains(EVENT_ID), 5000);
+        } finally {
+            //the index outlives the test - the context is shared
+            freeTicketIndex.removeChangeListener(changeListener);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.mobycode.ticketproblem.model;
+
+import com.mobycode.ticketproblem.TicketProblemApplication;
+import com.mobycode.ticketproblem.grid.entryprocessor.BookTicketSingle;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.marshaller.Marshaller;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/*
+    The grid's binary format against plain JDK serialisation - smaller, and nothing lost on the way.  Throughput is
+    measured by ModelSerializationBenchmark (mvn -Pjmh)
+ */
+@Slf4j
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = TicketProblemApplication.class)
+@ActiveProfiles("test")
+public class ModelSerializationTest {
+
+    @Autowired
+    private Ignite ignite;
+
+    private Marshaller marshaller;
+
+    @Before
+    public void setUp() {
+        marshaller = ignite.configuration().getMarshaller();
+    }
+
+    @Test
+    public void binaryFormatIsSmallerThanJdkSerialisation() throws Exception {
+        Ticket ticket = new Ticket(500L);
+        ticket.setAvailable(false);
+        ticket.setCustomerReference(12345L);
+        Customer customer = new Customer(12345L);
+        customer.setDisplayName("customer 12345");
+        Object[] models = {
+                ticket,
+                customer,
+                new BookingRequest(500L, 12345L),
+                new BookingResult(500L, 12345L, BookTicketResult.TICKET_NOT_AVAILABLE),
+                new BookTicketSingle(500L, 12345L)
+        };
+        for (Object model : models) {
+            int jdkSize = jdkSerialise(model).length;
+            int binarySize = marshaller.marshal(model).length;
+            log.info("{} - JDK serialised size {} bytes, binary size {} bytes", model.getClass().getSimpleName(), jdkSize, binarySize);
+            assertTrue(binarySize < jdkSize);
+        }
+    }
+
+    @Test
+    public void binaryRoundTripKeepsEveryField() throws Exception {
+        Ticket ticket = new Ticket(500L, 7L);
+        ticket.setAvailable(false);
+        ticket.setCustomerReference(12345L);
+        ticket.setHoldExpiresAt(1234567890L);
+        Ticket ticketBack = roundTrip(ticket);
+        assertEquals(500L, ticketBack.getId());
+        assertEquals(7L, ticketBack.getEventId());
+        assertFalse(ticketBack.isAvailable());
+        assertEquals(12345L, ticketBack.getCustomerReference());
+        assertEquals(1234567890L, ticketBack.getHoldExpiresAt());
+
+        Customer customer = new Customer(12345L);
+        customer.setDisplayName("customer 12345");
+        customer.setBlocked(true);
+        Customer customerBack = roundTrip(customer);
+        assertEquals(12345L, customerBack.getId());
+        assertEquals("customer 12345", customerBack.getDisplayName());
+        assertTrue(customerBack.isBlocked());
+
+        BookingResult bookingResultBack = roundTrip(new BookingResult(500L, 12345L, BookTicketResult.TICKET_NOT_AVAILABLE));
+        assertEquals(500L, bookingResultBack.getTicketId());
+        assertEquals(12345L, bookingResultBack.getCustomerId());
+        assertEquals(BookTicketResult.TICKET_NOT_AVAILABLE, bookingResultBack.getBookTicketResult());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T roundTrip(T model) throws Exception {
+        return (T) marshaller.unmarshal(marshaller.marshal(model), getClass().getClassLoader());
+    }
+
+    private static byte[] jdkSerialise(Object model) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(model);
+        }
+        return bytes.toByteArray();
+    }
+}
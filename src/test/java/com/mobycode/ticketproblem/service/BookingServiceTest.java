@@ -1,60 +1,51 @@
 package com.mobycode.ticketproblem.service;
 
-import com.mobycode.ticketproblem.TicketProblemApplication;
+import com.mobycode.ticketproblem.GridTestBase;
+import com.mobycode.ticketproblem.grid.InventoryLoader;
+import com.mobycode.ticketproblem.grid.entryprocessor.BookFromPool;
+import com.mobycode.ticketproblem.grid.entryprocessor.BookSeats;
+import com.mobycode.ticketproblem.grid.listener.CustomerEligibility;
+import com.mobycode.ticketproblem.grid.listener.FreeTicketIndex;
 import com.mobycode.ticketproblem.model.*;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.ignite.IgniteCache;
 import org.junit.Before;
 import org.junit.Test;
-import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.test.SpringApplicationConfiguration;
-import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.util.StopWatch;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.*;
 import java.util.stream.LongStream;
 
+import static com.mobycode.ticketproblem.Await.awaitTrue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
 @Slf4j
-@RunWith(SpringJUnit4ClassRunner.class)
-@SpringApplicationConfiguration(classes = TicketProblemApplication.class)
-public class BookingServiceTest {
+public class BookingServiceTest extends GridTestBase {
+
+    @Autowired
+    private BookFromPool bookFromPool;
 
     @Autowired
-    private IgniteCache<Long, Ticket> ticketMap;
+    private BookSeats bookSeats;
 
     @Autowired
-    private IgniteCache<Long, Customer> customerMap;
+    private FreeTicketIndex freeTicketIndex;
 
     @Autowired
-    private BookingService bookingService;
+    private CustomerEligibility customerEligibility;
 
     private Executor executor;
     private CompletionService<BookingResult> completionService;
 
-    private final Long ticketId = 500L;
-
     @Before
     public void setUp() {
         executor = Executors.newFixedThreadPool(6);
         completionService = new ExecutorCompletionService<>(executor);
-        clearAndFillGrid();
-    }
-
-
-    private void clearAndFillGrid() {
-        ticketMap.clear();
-        customerMap.clear();
-        StopWatch stopWatch = new StopWatch("Time to fill grid objects");
-        //create 1000 tickets
-        stopWatch.start("time to fill ticket map with 1000 tickets");
-        LongStream.rangeClosed(1, 1000).parallel().forEach(key -> ticketMap.put(key, new Ticket(key)));
-        stopWatch.stop();
-        //create 60000 customers
-        stopWatch.start("time to fill customer map with 60000 customers");
-        LongStream.rangeClosed(1, 60000).parallel().forEach(key -> customerMap.put(key, new Customer(key)));
-        stopWatch.stop();
-        log.debug(stopWatch.prettyPrint());
     }
 
     @Test
@@ -83,7 +74,7 @@ public class BookingServiceTest {
         final Long numberOfCustomers = customerMap.sizeLong();
         Ticket ticket = ticketMap.get(ticketId);
         log.info("Pre booking ticket details - available:{}, customer ref {}",
-                ticket.getAvailable(),
+                ticket.isAvailable(),
                 ticket.getCustomerReference());
         StopWatch stopWatch = new StopWatch("How long for all customers to attempt to book a ticket");
         stopWatch.start("all customers attempt to book one ticket in parallel");
@@ -107,5 +98,205 @@ public class BookingServiceTest {
         recorder.checkResults();
     }
 
-}
 
+    @Test
+    public void soldOutTicketIsBookableAgainAfterCancellation() {
+        assertEquals(BookTicketResult.TICKET_BOOKED, bookingService.book(new BookingRequest(ticketId, 1L)).getBookTicketResult());
+        assertEquals(BookTicketResult.TICKET_NOT_AVAILABLE, bookingService.book(new BookingRequest(ticketId, 2L)).getBookTicketResult());
+        //cancel the booking by returning the ticket to sale
+        ticketMap.put(ticketId, new Ticket(ticketId, EVENT_ID));
+        awaitAvailableInRegistry(ticketId);
+        assertEquals(BookTicketResult.TICKET_BOOKED, bookingService.book(new BookingRequest(ticketId, 2L)).getBookTicketResult());
+    }
+
+    @Test
+    public void bookInBatches() {
+        final int batchSize = 1000;
+        List<BookingRequest> requests = new ArrayList<>();
+        customerMap.forEach(entry -> requests.add(new BookingRequest(ticketId, entry.getKey())));
+        StopWatch stopWatch = new StopWatch("How long for all customers to attempt to book a ticket");
+        stopWatch.start("all customers attempt to book one ticket in batches of " + batchSize);
+        ResultRecorder recorder = new ResultRecorder();
+        for (int from = 0; from < requests.size(); from += batchSize) {
+            List<BookingRequest> batch = requests.subList(from, Math.min(from + batchSize, requests.size()));
+            List<BookingResult> results = bookingService.bookAll(batch);
+            assertEquals(batch.size(), results.size());
+            for (int i = 0; i < batch.size(); i++) {
+                assertEquals(batch.get(i).getCustomerId(), results.get(i).getCustomerId());
+                recorder.recordResult(results.get(i));
+            }
+        }
+        stopWatch.stop();
+        log.info(stopWatch.prettyPrint());
+        recorder.printResults();
+        recorder.checkResults();
+    }
+
+    @Test
+    public void bookParallelAsync() {
+        StopWatch stopWatch = new StopWatch("How long for all customers to attempt to book a ticket");
+        stopWatch.start("all customers attempt to book one ticket asynchronously");
+        List<CompletableFuture<BookingResult>> bookings = new ArrayList<>();
+        customerMap.forEach(entry -> bookings.add(bookingService.bookAsync(new BookingRequest(ticketId, entry.getKey()))));
+        ResultRecorder recorder = new ResultRecorder();
+        bookings.forEach(booking -> recorder.recordResult(booking.join()));
+        stopWatch.stop();
+        log.info(stopWatch.prettyPrint());
+        recorder.printResults();
+        recorder.checkResults();
+    }
+
+    @Test
+    public void bookFromStripedPoolWithoutOverselling() {
+        final Long eventId = 1L;
+        final long capacity = 50000;
+        bookFromPool.createPool(new TicketPool(eventId, capacity, 16));
+        StopWatch stopWatch = new StopWatch("How long for all customers to attempt to book from a pool");
+        stopWatch.start("all customers attempt to book one pool ticket in parallel");
+        List<Future<PoolBookingResult>> bookings = new ArrayList<>();
+        ExecutorService poolExecutor = Executors.newFixedThreadPool(6);
+        customerMap.forEach(entry -> bookings.add(poolExecutor.submit(
+                () -> bookingService.bookFromPool(new PoolBookingRequest(eventId, entry.getKey(), 1)))));
+        long booked = 0;
+        long notAvailable = 0;
+        for (Future<PoolBookingResult> booking : bookings) {
+            try {
+                BookTicketResult result = booking.get().getBookTicketResult();
+                booked += result == BookTicketResult.TICKET_BOOKED ? 1 : 0;
+                notAvailable += result == BookTicketResult.TICKET_NOT_AVAILABLE ? 1 : 0;
+            } catch (InterruptedException | ExecutionException e) {
+                e.printStackTrace();
+            }
+        }
+        poolExecutor.shutdown();
+        stopWatch.stop();
+        log.info(stopWatch.prettyPrint());
+        assertEquals(capacity, booked);
+        assertEquals(customerMap.sizeLong() - capacity, notAvailable);
+        assertEquals(0, bookFromPool.remaining(eventId));
+    }
+
+    @Test
+    public void bookAdjacentSeatBlocksWithoutDoubleBooking() {
+        final int section = 1;
+        final int rows = 20;
+        final int seatsPerRow = 30;
+        final int familySize = 4;
+        bookSeats.createSection(new SeatMap(EVENT_ID, section, rows, seatsPerRow));
+
+        //an empty section gives the middle of the front row
+        SeatBlockResult first = bookingService.bookSeats(new SeatBlockRequest(EVENT_ID, section, 1L, familySize));
+        assertEquals(BookTicketResult.TICKET_BOOKED, first.getBookTicketResult());
+        assertEquals(0, first.getRow().intValue());
+        assertEquals((seatsPerRow - familySize) / 2, first.getFirstSeat().intValue());
+
+        List<Future<SeatBlockResult>> bookings = new ArrayList<>();
+        ExecutorService seatExecutor = Executors.newFixedThreadPool(6);
+        for (long customerId = 2; customerId <= 200; customerId++) {
+            final long customer = customerId;
+            bookings.add(seatExecutor.submit(() -> bookingService.bookSeats(new SeatBlockRequest(EVENT_ID, section, customer, familySize))));
+        }
+        boolean[] taken = new boolean[rows * seatsPerRow];
+        markTaken(taken, first, seatsPerRow);
+        int booked = 1;
+        for (Future<SeatBlockResult> booking : bookings) {
+            try {
+                SeatBlockResult result = booking.get();
+                if (result.getBookTicketResult() == BookTicketResult.TICKET_BOOKED) {
+                    markTaken(taken, result, seatsPerRow);
+                    booked++;
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                e.printStackTrace();
+            }
+        }
+        seatExecutor.shutdown();
+        assertEquals(rows * seatsPerRow - booked * familySize, bookSeats.freeSeats(EVENT_ID, section));
+        //a request without a customer is an error, not an exception
+        assertEquals(BookTicketResult.BOOKING_ERROR,
+                bookingService.bookSeats(new SeatBlockRequest(EVENT_ID, section, null, familySize)).getBookTicketResult());
+        //only the customer who booked the block can give it back, and only once
+        assertFalse(bookSeats.release(EVENT_ID, section, 2L, first.getRow(), first.getFirstSeat(), familySize));
+        assertTrue(bookSeats.release(EVENT_ID, section, 1L, first.getRow(), first.getFirstSeat(), familySize));
+        assertFalse(bookSeats.release(EVENT_ID, section, 1L, first.getRow(), first.getFirstSeat(), familySize));
+    }
+
+    private void markTaken(boolean[] taken, SeatBlockResult result, int seatsPerRow) {
+        int firstSeat = result.getRow() * seatsPerRow + result.getFirstSeat();
+        for (int seat = firstSeat; seat < firstSeat + result.getSeatBlockRequest().getQuantity(); seat++) {
+            assertFalse("seat " + seat + " booked twice", taken[seat]);
+            taken[seat] = true;
+        }
+    }
+
+    @Test
+    public void anyTicketBookingsNeverShareATicket() throws InterruptedException {
+        //candidates come from the free ticket index - wait for it to see the refill
+        awaitTrue(() -> freeTicketIndex.freeCount(EVENT_ID) == 1000, 5000);
+        ExecutorService anyExecutor = Executors.newFixedThreadPool(6);
+        List<Future<BookingResult>> bookings = new ArrayList<>();
+        LongStream.rangeClosed(1, 2000).forEach(customerId -> bookings.add(anyExecutor.submit(
+                () -> bookingService.bookAny(new AnyTicketRequest(EVENT_ID, customerId)))));
+        Set<Long> booked = ConcurrentHashMap.newKeySet();
+        for (Future<BookingResult> booking : bookings) {
+            try {
+                BookingResult result = booking.get();
+                if (result.getBookTicketResult() == BookTicketResult.TICKET_BOOKED) {
+                    assertTrue("ticket id:" + result.getTicketId() + " booked twice", booked.add(result.getTicketId()));
+                    assertEquals(result.getCustomerId(), ticketMap.get(result.getTicketId()).getCustomerReference());
+                }
+            } catch (ExecutionException e) {
+                e.printStackTrace();
+            }
+        }
+        anyExecutor.shutdown();
+        //buyers that only met taken candidates gave up early - once the index has caught up the rest sell
+        awaitTrue(() -> freeTicketIndex.freeCount(EVENT_ID) == 1000 - booked.size(), 5000);
+        long customerId = 2001;
+        BookingResult result;
+        while ((result = bookingService.bookAny(new AnyTicketRequest(EVENT_ID, customerId++))).getBookTicketResult() == BookTicketResult.TICKET_BOOKED) {
+            assertTrue(booked.add(result.getTicketId()));
+        }
+        assertEquals(BookTicketResult.TICKET_NOT_AVAILABLE, result.getBookTicketResult());
+        assertEquals(1000, booked.size());
+    }
+
+    @Test
+    public void retriedBookingGetsTheFirstAttemptsResult() {
+        BookingRequest attempt = new BookingRequest(ticketId, 1L, "checkout-1");
+        assertEquals(BookTicketResult.TICKET_BOOKED, bookingService.book(attempt).getBookTicketResult());
+        assertEquals(BookTicketResult.TICKET_BOOKED, bookingService.book(new BookingRequest(ticketId, 1L, "checkout-1")).getBookTicketResult());
+        //without the key it is a new booking of a ticket that is no longer available
+        assertEquals(BookTicketResult.TICKET_NOT_AVAILABLE, bookingService.book(new BookingRequest(ticketId, 1L)).getBookTicketResult());
+        assertEquals(BookTicketResult.TICKET_NOT_AVAILABLE, bookingService.book(new BookingRequest(ticketId, 2L, "checkout-1")).getBookTicketResult());
+    }
+
+    @Test
+    public void unknownAndBlockedCustomersCannotBook() {
+        assertEquals(BookTicketResult.CUSTOMER_NOT_ELIGIBLE, bookingService.book(new BookingRequest(ticketId, 999999L)).getBookTicketResult());
+
+        Customer blocked = new Customer(2L);
+        blocked.setBlocked(true);
+        customerMap.put(blocked.getId(), blocked);
+        //the near cache hears of the change asynchronously
+        awaitTrue(() -> !customerEligibility.isEligible(2L).join(), 5000);
+        assertEquals(BookTicketResult.CUSTOMER_NOT_ELIGIBLE, bookingService.book(new BookingRequest(ticketId, 2L)).getBookTicketResult());
+        assertTrue(ticketMap.get(ticketId).isAvailable());
+        assertEquals(BookTicketResult.TICKET_BOOKED, bookingService.book(new BookingRequest(ticketId, 1L)).getBookTicketResult());
+    }
+
+    @Test
+    public void reloadingAnEventLeavesOtherEventsAlone() {
+        final long otherEventId = 2L;
+        inventoryLoader.loadTickets(InventoryLoader.generateTickets(otherEventId, 2001, 500));
+        assertEquals(BookTicketResult.TICKET_BOOKED, bookingService.book(new BookingRequest(2001L, 1L)).getBookTicketResult());
+        assertEquals(BookTicketResult.TICKET_BOOKED, bookingService.book(new BookingRequest(ticketId, 1L)).getBookTicketResult());
+
+        inventoryLoader.reloadEvent(EVENT_ID, InventoryLoader.generateTickets(EVENT_ID, 1, 1000));
+
+        assertEquals(1500, ticketMap.sizeLong());
+        assertTrue(ticketMap.get(ticketId).isAvailable());
+        assertFalse(ticketMap.get(2001L).isAvailable());
+    }
+
+}